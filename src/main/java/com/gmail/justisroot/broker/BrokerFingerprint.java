@@ -0,0 +1,84 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import com.gmail.justisroot.broker.defaults.AbstractBroker;
+
+/**
+ * Fingerprints the inputs a default Broker is built from, so that a reload can tell which Brokers need rebuilding.<br>
+ * Covers the providing plugin's instance and version, the provider's section of Broker's settings,
+ * and the size and modification time of the configuration files the Broker lists in {@link AbstractBroker#configurations()}.
+ */
+final class BrokerFingerprint {
+
+	private BrokerFingerprint() { }
+
+	static final long ABSENT = 0;
+
+	/**
+	 * Get the fingerprint of the provided Broker's inputs. Safe to call off the main thread.
+	 * @param broker the Broker to fingerprint
+	 * @return the fingerprint, or {@link #ABSENT} if the Broker's provider isn't loaded
+	 */
+	static long of(AbstractBroker<?> broker) {
+		Plugin plugin = Bukkit.getPluginManager().getPlugin(broker.getProvider());
+		if (plugin == null) return ABSENT;
+		long hash = mix(System.identityHashCode(plugin));
+		hash = mix(hash ^ plugin.getDescription().getVersion().hashCode());
+		hash = mix(hash ^ BrokerSettings.section(broker.getProvider()).getValues(true).toString().hashCode());
+		Path folder = plugin.getDataFolder().toPath();
+		// Summed so that the order files are listed in doesn't matter
+		long files = 0;
+		for (String name : broker.configurations()) {
+			Path file = folder.resolve(name);
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			} catch (NoSuchFileException e) {
+				continue;
+			} catch (IOException e) {
+				// Unreadable inputs are treated as changed
+				return mix(hash ^ System.nanoTime());
+			}
+			if (attributes.isRegularFile()) files += mix(name.hashCode() ^ mix(attributes.size() ^ mix(attributes.lastModifiedTime().toMillis())));
+		}
+		hash = mix(hash ^ files);
+		return hash == ABSENT ? 1 : hash;
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Broker's own settings, kept apart from the BrokerAPI configuration.
+ */
+public final class BrokerSettings {
+
+	private BrokerSettings() { }
+
+	private static final String FILE = "settings.yml";
+
+	private static volatile ConfigurationSection current = new MemoryConfiguration();
+
+	static final void load(JavaPlugin plugin) {
+		File file = new File(plugin.getDataFolder(), FILE);
+		if (!file.exists()) plugin.saveResource(FILE, false);
+		YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+		InputStream defaults = plugin.getResource(FILE);
+		if (defaults != null) config.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+		current = config;
+	}
+
+	/**
+	 * Get the settings section at the provided path
+	 * @param path the path of the section
+	 * @return the section at the provided path, or an empty section if there is none
+	 */
+	public static ConfigurationSection section(String path) {
+		ConfigurationSection section = current.getConfigurationSection(path);
+		return section == null ? new MemoryConfiguration() : section;
+	}
+
+}
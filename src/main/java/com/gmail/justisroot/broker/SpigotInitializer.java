@@ -14,21 +14,37 @@
  */
 package com.gmail.justisroot.broker;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.CustomChart;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import com.gmail.justisroot.broker.commands.BrokerCommands;
 import com.gmail.justisroot.broker.defaults.AbstractBroker;
+import com.gmail.justisroot.broker.defaults.OnlinePlayers;
 import com.gmail.justisroot.broker.defaults.itemstack.CMIBroker;
 import com.gmail.justisroot.broker.defaults.itemstack.ClipAutoSellBroker;
 import com.gmail.justisroot.broker.defaults.itemstack.ConjurateShopBroker;
@@ -41,20 +57,53 @@ import com.gmail.justisroot.broker.defaults.itemstack.ShopGUIPlusBroker;
 import com.gmail.justisroot.broker.defaults.itemstack.ZShopBroker;
 import com.gmail.justisroot.broker.defaults.permission.BuyPermissionsBroker;
 import com.gmail.justisroot.broker.events.EventCreator;
+import com.gmail.justisroot.broker.journal.TradeJournal;
+import com.gmail.justisroot.broker.quote.AsyncQuotes;
 import com.google.common.collect.Sets;
 
 public final class SpigotInitializer extends JavaPlugin implements Listener {
 
 	private final BrokerAPI api = new BrokerAPI(new Config(this.getDataFolder()));
 	private final Map<Plugin, AbstractBroker<?>> defaults = new HashMap<>();
+	// Registered default Brokers and the fingerprints of their inputs, by their index in DEFAULT_BROKERS
+	private final AbstractBroker<?>[] running = new AbstractBroker<?>[DEFAULT_BROKERS.size()];
+	private final long[] fingerprints = new long[DEFAULT_BROKERS.size()];
+	private int reloads;
 
 	@Override
 	public void onEnable() {
+		BrokerSettings.load(this);
+		TradeJournal.open(this);
 		EventCreator.registerEvents();
 		registerCommands();
 		registerCharts(new Metrics(this, 10492));
 		this.getServer().getPluginManager().registerEvents(this, this);
+		OnlinePlayers.reset(Bukkit.getOnlinePlayers());
 		Bukkit.getScheduler().runTaskLater(this, () -> registerDefaultBrokers(), 1);
+		Bukkit.getScheduler().runTaskTimer(this, EventCreator::summarize, 1, 1);
+		AsyncQuotes.open();
+		Bukkit.getScheduler().runTaskTimer(this, AsyncQuotes::drain, 1, 1);
+	}
+
+	@Override
+	public void onDisable() {
+		for (AbstractBroker<?> broker : defaults.values())
+			broker.unload();
+		defaults.clear();
+		Arrays.fill(running, null);
+		OnlinePlayers.reset(Collections.emptyList());
+		AsyncQuotes.close();
+		TradeJournal.close();
+	}
+
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onJoin(PlayerJoinEvent e) {
+		OnlinePlayers.add(e.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent e) {
+		OnlinePlayers.remove(e.getPlayer().getUniqueId());
 	}
 
 	@EventHandler
@@ -66,11 +115,49 @@ public final class SpigotInitializer extends JavaPlugin implements Listener {
 	 * Reloads all of the registered Brokers and their configuration settings.
 	 */
 	public void reload() {
-		for (AbstractBroker<?> broker : defaults.values())
-			api.unregister(broker);
-		defaults.clear();
+		reload(() -> { });
+	}
+
+	/**
+	 * Reloads the configuration settings, and rebuilds only those default Brokers whose inputs have changed since they were built.<br>
+	 * Inputs are fingerprinted and changed Brokers constructed off the main thread. Each is then swapped in for its predecessor on the main thread,
+	 * while the Brokers left unchanged keep running with everything they've cached. Every running Broker is flushed first, so pending changes are always saved.
+	 *
+	 * @param then run on the main thread once the rebuilt Brokers have been swapped in
+	 */
+	public void reload(Runnable then) {
+		for (AbstractBroker<?> broker : running)
+			if (broker != null) broker.flush();
+		AbstractBroker.forgetProbes();
+		BrokerSettings.load(this);
+		TradeJournal.open(this);
 		api.reload();
-		registerDefaultBrokers();
+		int reload = ++reloads;
+		AbstractBroker<?>[] current = running.clone();
+		long[] built = fingerprints.clone();
+		Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+			Discovered[] rebuilt = new Discovered[current.length];
+			for (int i = 0; i < current.length; i++)
+				if (current[i] == null || BrokerFingerprint.of(current[i]) != built[i]) rebuilt[i] = discover(DEFAULT_BROKERS.get(i));
+			if (isEnabled()) Bukkit.getScheduler().runTask(this, () -> swap(reload, current, rebuilt, then));
+		});
+	}
+
+	private final void swap(int reload, AbstractBroker<?>[] current, Discovered[] rebuilt, Runnable then) {
+		if (reload != reloads) {
+			// Superseded by a later reload, which rebuilds from the same Brokers
+			for (Discovered discovered : rebuilt)
+				if (discovered != null && discovered.broker != null) discovered.broker.unload();
+			return;
+		}
+		int swapped = 0;
+		for (int i = 0; i < rebuilt.length; i++) {
+			if (rebuilt[i] == null) continue;
+			if (running[i] != null && running[i] == current[i]) unregisterDefault(running[i]);
+			if (register(i, rebuilt[i])) swapped++;
+		}
+		getLogger().info("Reloaded with " + swapped + " default Brokers rebuilt");
+		then.run();
 	}
 
 	/**
@@ -99,30 +186,106 @@ public final class SpigotInitializer extends JavaPlugin implements Listener {
 	private final void unregisterDefault(AbstractBroker<?> broker) {
 		api.unregister(broker);
 		defaults.remove(broker.plugin());
+		for (int i = 0; i < running.length; i++)
+			if (running[i] == broker) running[i] = null;
+		broker.unload();
 	}
 
 	/*
 	 * Plugins where prices are assigned to arbitrary shop/package names or gui slots, rather than to a specific item/permission/etc are difficult to support If you have a plugin you'd like supported, consider contacting
 	 * the author, asking that they register their own Broker implementation within their plugin
 	 */
+	private static final List<Supplier<AbstractBroker<?>>> DEFAULT_BROKERS = Arrays.asList(
+			// Default org.bukkit.inventory.ItemStack Brokers
+			EssentialsXBroker::new, // https://essentialsx.net/downloads.html
+			ShopGUIPlusBroker::new, // https://www.spigotmc.org/resources/6515/
+			GUIShopBroker::new, // https://www.mc-market.org/resources/581/
+			ConjurateShopBroker::new, // https://www.spigotmc.org/resources/8185/
+			SSDynamicShopBroker::new, // https://www.spigotmc.org/resources/65603/
+			GUIShopSpawnersBroker::new, // https://www.spigotmc.org/resources/69279/
+			ClipAutoSellBroker::new, // https://wiki.helpch.at/clips-plugins/autosell
+			OneStopShopBroker::new, // https://www.spigotmc.org/resources/76640/
+			ZShopBroker::new, // https://www.mc-market.org/resources/13376/
+			CMIBroker::new, // https://www.spigotmc.org/resources/3742/
+
+			// Default org.bukkit.permissions.Permission Brokers
+			BuyPermissionsBroker::new // https://www.spigotmc.org/resources/52557/
+
+			// Other default Brokers
+	);
+
+	// How long registration waits, in all, for the default Brokers to be constructed
+	private static final long DISCOVERY_TIMEOUT = 10;
+
+	/**
+	 * Constructs the default Brokers in parallel and registers them in the order they're declared, so that Brokers of equal priority keep their order.<br>
+	 * Construction only probes for classes and reads configuration, so it's done off the main thread, which waits for all of it under one deadline before the tick ends.
+	 * Brokers are then loaded and registered on the main thread, and any constructed after the deadline are unloaded once they arrive.
+	 */
 	private final void registerDefaultBrokers() {
-		// Register default org.bukkit.inventory.ItemStack Brokers
-		register(new EssentialsXBroker()); // https://essentialsx.net/downloads.html
-		register(new ShopGUIPlusBroker()); // https://www.spigotmc.org/resources/6515/
-		register(new GUIShopBroker()); // https://www.mc-market.org/resources/581/
-		register(new ConjurateShopBroker()); // https://www.spigotmc.org/resources/8185/
-		register(new SSDynamicShopBroker()); // https://www.spigotmc.org/resources/65603/
-		register(new GUIShopSpawnersBroker()); // https://www.spigotmc.org/resources/69279/
-		register(new ClipAutoSellBroker()); // https://wiki.helpch.at/clips-plugins/autosell
-		register(new OneStopShopBroker()); // https://www.spigotmc.org/resources/76640/
-		register(new ZShopBroker()); // https://www.mc-market.org/resources/13376/
-		register(new CMIBroker()); // https://www.spigotmc.org/resources/3742/
+		long started = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(DEFAULT_BROKERS.size(), Runtime.getRuntime().availableProcessors()), runnable -> {
+			Thread thread = new Thread(runnable, "Broker Discovery");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<CompletableFuture<Discovered>> discoveries = new ArrayList<>(DEFAULT_BROKERS.size());
+		for (Supplier<AbstractBroker<?>> factory : DEFAULT_BROKERS)
+			discoveries.add(CompletableFuture.supplyAsync(() -> discover(factory), pool));
+		pool.shutdown();
+		try {
+			CompletableFuture.allOf(discoveries.toArray(new CompletableFuture<?>[0])).get(DISCOVERY_TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException | ExecutionException e) {
+			// Whatever finished in time is still registered below
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		int registered = 0;
+		for (int i = 0; i < discoveries.size(); i++) {
+			CompletableFuture<Discovered> discovery = discoveries.get(i);
+			if (!discovery.isDone()) {
+				getLogger().warning("Gave up on a default Broker which took more than " + DISCOVERY_TIMEOUT + "s to construct");
+				discovery.thenAccept(this::discard);
+				continue;
+			}
+			if (register(i, discovery.join())) registered++;
+		}
+		getLogger().info(String.format("Registered %d default Brokers in %.2fms", registered, (System.nanoTime() - started) / 1_000_000D));
+	}
 
-		// Register default org.bukkit.permissions.Permission Brokers
-		register(new BuyPermissionsBroker()); // https://www.spigotmc.org/resources/52557/
+	/**
+	 * Unload a Broker constructed too late to be registered, on the main thread
+	 */
+	private final void discard(Discovered discovered) {
+		if (discovered.broker == null || !isEnabled()) return;
+		Bukkit.getScheduler().runTask(this, discovered.broker::unload);
+	}
 
-		// Register other default Brokers
+	/**
+	 * Construct a default Broker and fingerprint its inputs, timing its construction
+	 */
+	private final Discovered discover(Supplier<AbstractBroker<?>> factory) {
+		long start = System.nanoTime();
+		try {
+			AbstractBroker<?> broker = factory.get();
+			long nanos = System.nanoTime() - start;
+			return new Discovered(broker, nanos, broker.isAvailable() ? BrokerFingerprint.of(broker) : BrokerFingerprint.ABSENT);
+		} catch (RuntimeException | LinkageError e) {
+			getLogger().log(Level.WARNING, "Unable to construct a default Broker", e);
+			return new Discovered(null, System.nanoTime() - start, BrokerFingerprint.ABSENT);
+		}
+	}
+
+	private static final class Discovered {
+
+		private final AbstractBroker<?> broker;
+		private final long nanos, fingerprint;
 
+		private Discovered(AbstractBroker<?> broker, long nanos, long fingerprint) {
+			this.broker = broker;
+			this.nanos = nanos;
+			this.fingerprint = fingerprint;
+		}
 	}
 
 	/**
@@ -132,8 +295,26 @@ public final class SpigotInitializer extends JavaPlugin implements Listener {
 	 *
 	 * @param broker the Broker implementation to register, if available
 	 */
-	private final void register(AbstractBroker<?> broker) {
-		if (broker.isAvailable() && broker.plugin() != null && api.register(broker)) defaults.put(broker.plugin(), broker);
+	private final boolean register(AbstractBroker<?> broker) {
+		if (!broker.isAvailable() || broker.plugin() == null) {
+			broker.unload();
+			return false;
+		}
+		broker.load();
+		if (!api.register(broker)) {
+			broker.unload();
+			return false;
+		}
+		defaults.put(broker.plugin(), broker);
+		return true;
+	}
+
+	private final boolean register(int index, Discovered discovered) {
+		if (discovered.broker == null || !register(discovered.broker)) return false;
+		running[index] = discovered.broker;
+		fingerprints[index] = discovered.fingerprint;
+		getLogger().info(String.format("Registered %s in %.2fms", discovered.broker.getId(), discovered.nanos / 1_000_000D));
+		return true;
 	}
 
 }
@@ -0,0 +1,177 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.basket;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+
+import com.gmail.justisroot.broker.defaults.AbstractBroker;
+import com.gmail.justisroot.broker.events.BasketEvent;
+import com.gmail.justisroot.broker.events.BasketPreProcessEvent;
+import com.gmail.justisroot.broker.events.EventCreator;
+
+/**
+ * Many purchases or many sales by one player, priced, pre-processed and completed together.<br>
+ * Each line is pre-processed by its own events as usual, then a single {@link BasketPreProcessEvent} is fired for the whole basket.
+ * Completing fires a single {@link BasketEvent} in place of each line's own completion event,
+ * and work which Brokers defer while completing, such as saving, is done once for the whole basket.
+ *
+ * @param <T> the type of object transacted
+ */
+public final class Basket<T> {
+
+	private final boolean sale;
+	private final Optional<UUID> playerID, worldID;
+	private final List<BasketLine<T>> lines = new ArrayList<>();
+	private boolean transacted, completed;
+
+	private Basket(boolean sale, Optional<UUID> playerID, Optional<UUID> worldID) {
+		this.sale = sale;
+		this.playerID = playerID;
+		this.worldID = worldID;
+	}
+
+	/**
+	 * Start a basket of purchases
+	 * @param playerID the ID of the purchasing player, if any
+	 * @param worldID the ID of the world the purchases are made in, if any
+	 * @return a new, empty basket
+	 */
+	public static <T> Basket<T> purchase(Optional<UUID> playerID, Optional<UUID> worldID) {
+		return new Basket<>(false, playerID, worldID);
+	}
+
+	/**
+	 * Start a basket of sales
+	 * @param playerID the ID of the selling player, if any
+	 * @param worldID the ID of the world the sales are made in, if any
+	 * @return a new, empty basket
+	 */
+	public static <T> Basket<T> sale(Optional<UUID> playerID, Optional<UUID> worldID) {
+		return new Basket<>(true, playerID, worldID);
+	}
+
+	/**
+	 * Add a line to this basket
+	 * @param object the object to transact
+	 * @param volume the volume of the object to transact
+	 * @return this basket
+	 * @throws IllegalStateException if this basket has already been transacted
+	 */
+	public Basket<T> add(T object, int volume) {
+		if (transacted) throw new IllegalStateException("Basket has already been transacted");
+		lines.add(new BasketLine<>(object, volume));
+		return this;
+	}
+
+	/**
+	 * Transact every line through the Broker handling it, pre-processing each line as usual, then pre-process the basket with a single {@link BasketPreProcessEvent}.<br>
+	 * Each line succeeds or fails on its own, and a cancelled basket cancels every line.
+	 * @return true if any line succeeded, false otherwise
+	 * @throws IllegalStateException if this basket has already been transacted
+	 */
+	public boolean transact() {
+		if (transacted) throw new IllegalStateException("Basket has already been transacted");
+		transacted = true;
+		for (BasketLine<T> line : lines)
+			line.transact(sale, playerID, worldID);
+		if (!isSuccess()) return false;
+		if (BasketPreProcessEvent.getHandlerList().getRegisteredListeners().length == 0) return true;
+		BasketPreProcessEvent event = new BasketPreProcessEvent(this);
+		Bukkit.getPluginManager().callEvent(event);
+		if (event.isCancelled()) lines.forEach(line -> line.setCancelled(true));
+		return isSuccess();
+	}
+
+	/**
+	 * Complete every successful line, then fire a single {@link BasketEvent}.<br>
+	 * As with a single transaction, balances and objects must be exchanged by the caller before completing.
+	 * @throws IllegalStateException if this basket hasn't been transacted, or has already been completed
+	 */
+	public void complete() {
+		if (!transacted) throw new IllegalStateException("Basket hasn't been transacted");
+		if (completed) throw new IllegalStateException("Basket has already been completed");
+		completed = true;
+		AbstractBroker.batch(() -> EventCreator.batch(() -> {
+			for (BasketLine<T> line : lines)
+				line.complete();
+		}));
+		if (BasketEvent.getHandlerList().getRegisteredListeners().length > 0) Bukkit.getPluginManager().callEvent(new BasketEvent(this));
+	}
+
+	/**
+	 * Check if this basket holds sales rather than purchases
+	 * @return true if this is a basket of sales, false if purchases
+	 */
+	public boolean isSale() {
+		return sale;
+	}
+
+	public Optional<UUID> playerID() {
+		return playerID;
+	}
+
+	public Optional<UUID> worldID() {
+		return worldID;
+	}
+
+	/**
+	 * Get every line of this basket, in the order they were added
+	 * @return an unmodifiable list of this basket's lines
+	 */
+	public List<BasketLine<T>> lines() {
+		return Collections.unmodifiableList(lines);
+	}
+
+	/**
+	 * Check if any line of this basket has succeeded
+	 * @return true if any line has succeeded, false otherwise
+	 */
+	public boolean isSuccess() {
+		for (BasketLine<T> line : lines)
+			if (line.isSuccess()) return true;
+		return false;
+	}
+
+	/**
+	 * Get the total value of every successful line
+	 * @return the total value, zero if no line has succeeded
+	 */
+	public BigDecimal total() {
+		BigDecimal total = BigDecimal.ZERO;
+		for (BasketLine<T> line : lines)
+			if (line.isSuccess()) total = total.add(line.value());
+		return total;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+}
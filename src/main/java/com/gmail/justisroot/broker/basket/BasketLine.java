@@ -0,0 +1,140 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.basket;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.gmail.justisroot.broker.BrokerAPI;
+import com.gmail.justisroot.broker.record.PurchaseRecord;
+import com.gmail.justisroot.broker.record.SaleRecord;
+
+/**
+ * A single object and volume within a {@link Basket}, along with the record of its transaction once transacted.
+ *
+ * @param <T> the type of object transacted
+ */
+public final class BasketLine<T> {
+
+	private static final String NO_BROKER = "No Broker handles this transaction";
+	private static final String CANCELLED = "Cancelled";
+
+	private final T object;
+	private final int volume;
+	private Optional<PurchaseRecord<T>> purchase = Optional.empty();
+	private Optional<SaleRecord<T>> sale = Optional.empty();
+	private boolean transacted, cancelled;
+
+	BasketLine(T object, int volume) {
+		this.object = object;
+		this.volume = volume;
+	}
+
+	void transact(boolean sale, Optional<UUID> playerID, Optional<UUID> worldID) {
+		transacted = true;
+		if (sale) this.sale = BrokerAPI.current().forSale(playerID, worldID, object).map(mediator -> mediator.sell(volume));
+		else this.purchase = BrokerAPI.current().forPurchase(playerID, worldID, object).map(mediator -> mediator.buy(volume));
+	}
+
+	void complete() {
+		if (!isSuccess()) return;
+		purchase.ifPresent(record -> record.complete());
+		sale.ifPresent(record -> record.complete());
+	}
+
+	public T object() {
+		return object;
+	}
+
+	public int volume() {
+		return volume;
+	}
+
+	/**
+	 * Get the record of this line's purchase
+	 * @return the purchase record, or empty if this line is a sale, hasn't been transacted, or no Broker handled it
+	 */
+	public Optional<PurchaseRecord<T>> purchaseRecord() {
+		return purchase;
+	}
+
+	/**
+	 * Get the record of this line's sale
+	 * @return the sale record, or empty if this line is a purchase, hasn't been transacted, or no Broker handled it
+	 */
+	public Optional<SaleRecord<T>> saleRecord() {
+		return sale;
+	}
+
+	/**
+	 * Check if this line was transacted successfully and hasn't been cancelled
+	 * @return true if this line succeeded, false otherwise
+	 */
+	public boolean isSuccess() {
+		if (cancelled) return false;
+		if (purchase.isPresent()) return purchase.get().isSuccess();
+		return sale.isPresent() && sale.get().isSuccess();
+	}
+
+	/**
+	 * Get why this line failed, if it failed for a reason of the basket's own rather than its Broker's
+	 * @return the reason for failure, or empty if this line succeeded or was failed by its Broker's record
+	 */
+	public Optional<String> failure() {
+		if (cancelled) return Optional.of(CANCELLED);
+		if (transacted && purchase.isEmpty() && sale.isEmpty()) return Optional.of(NO_BROKER);
+		return Optional.empty();
+	}
+
+	/**
+	 * Get the value of this line's transaction
+	 * @return the transaction's value, or zero if this line has no successful record
+	 */
+	public BigDecimal value() {
+		if (purchase.isPresent() && purchase.get().isSuccess()) return purchase.get().value();
+		if (sale.isPresent() && sale.get().isSuccess()) return sale.get().value();
+		return BigDecimal.ZERO;
+	}
+
+	/**
+	 * Check if this line's sale was only listed, in which case the seller mustn't yet be paid
+	 * @return true if this line is a listed sale, false otherwise
+	 */
+	public boolean isListing() {
+		return sale.isPresent() && sale.get().isListing();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancel this line, so that it isn't completed along with the rest of its basket
+	 * @param cancelled whether this line should be cancelled
+	 */
+	public void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
+}
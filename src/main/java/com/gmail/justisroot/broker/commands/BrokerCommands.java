@@ -22,11 +22,14 @@
  */
 package com.gmail.justisroot.broker.commands;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -35,6 +38,11 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 
 import com.gmail.justisroot.broker.SpigotInitializer;
+import com.gmail.justisroot.broker.events.EventCreator;
+import com.gmail.justisroot.broker.quote.BestPrice;
+import com.gmail.justisroot.broker.stats.BrokerTimings;
+import com.gmail.justisroot.broker.stats.BrokerTimings.Method;
+import com.gmail.justisroot.broker.stats.LatencyHistogram;
 import com.google.common.collect.Lists;
 
 public class BrokerCommands implements CommandExecutor, TabCompleter {
@@ -57,8 +65,7 @@ public class BrokerCommands implements CommandExecutor, TabCompleter {
 		}
 		if (args.length == 1) {
 			if (args[0].equalsIgnoreCase("reload")) {
-				plugin.reload();
-				message(sender, "BrokerAPI has reloaded with the current configuration");
+				plugin.reload(() -> message(sender, "BrokerAPI has reloaded with the current configuration"));
 				return true;
 			} else if (args[0].equalsIgnoreCase("list")) {
 				Map<String, Set<String>> available = plugin.available();
@@ -75,10 +82,54 @@ public class BrokerCommands implements CommandExecutor, TabCompleter {
 				return true;
 			}
 		}
-		message(sender, "BrokerAPI | Available Commands:", "/brokerapi reload", "/brokerapi list");
+		if (args.length >= 1 && args.length <= 2 && args[0].equalsIgnoreCase("stats")) {
+			stats(sender, args.length == 2 ? args[1] : null);
+			return true;
+		}
+		message(sender, "BrokerAPI | Available Commands:", "/brokerapi reload", "/brokerapi list", "/brokerapi stats [provider] - default Brokers only");
 		return true;
 	}
 
+	/**
+	 * Show the latencies of the default Brokers.<br>
+	 * Only Brokers built on {@link com.gmail.justisroot.broker.defaults.AbstractBroker} are timed, so Brokers registered by other plugins aren't listed.
+	 */
+	private static final void stats(CommandSender sender, String provider) {
+		List<BrokerTimings> timings = new ArrayList<>();
+		for (BrokerTimings broker : BrokerTimings.all())
+			if (provider == null || broker.provider().equalsIgnoreCase(provider)) timings.add(broker);
+		if (timings.isEmpty()) {
+			sender.sendMessage(ChatColor.YELLOW + (provider == null ? "No default Broker has been called yet." : "No default Broker by " + provider + " has been called yet."));
+			return;
+		}
+		timings.sort(Comparator.comparing(BrokerTimings::provider).thenComparing(BrokerTimings::id));
+		sender.sendMessage(ChatColor.GOLD.toString() + ChatColor.BOLD + "Default Broker latencies since enabling:");
+		for (BrokerTimings broker : timings) {
+			sender.sendMessage(ChatColor.GOLD + broker.provider() + " " + broker.id() + ChatColor.GRAY + String.format(" (%.3f%% of main thread time)", broker.tickShare() * 100));
+			for (Method method : Method.values()) {
+				LatencyHistogram histogram = broker.histogram(method);
+				if (histogram.count() == 0) continue;
+				sender.sendMessage(ChatColor.GOLD + " - " + method + ": " + ChatColor.GRAY + histogram.count() + " calls, p50 " + duration(histogram.percentile(0.5))
+						+ ", p99 " + duration(histogram.percentile(0.99)) + ", max " + duration(histogram.max()));
+			}
+		}
+		sender.sendMessage(ChatColor.GRAY + "Brokers registered by other plugins aren't timed.");
+		StringBuilder skipped = new StringBuilder();
+		for (Entry<String, Long> entry : EventCreator.skipped().entrySet())
+			skipped.append(skipped.length() == 0 ? "" : ", ").append(entry.getKey()).append(' ').append(entry.getValue());
+		sender.sendMessage(ChatColor.GOLD + "Unheard events skipped: " + ChatColor.GRAY + skipped);
+		StringBuilder missed = new StringBuilder();
+		for (Entry<String, Long> entry : BestPrice.missedDeadlines().entrySet())
+			missed.append(missed.length() == 0 ? "" : ", ").append(entry.getKey()).append(' ').append(entry.getValue());
+		if (missed.length() > 0) sender.sendMessage(ChatColor.GOLD + "Best price deadlines missed: " + ChatColor.GRAY + missed);
+	}
+
+	private static final String duration(long nanos) {
+		if (nanos < 1_000) return nanos + "ns";
+		if (nanos < 1_000_000) return String.format("%.1f\u00B5s", nanos / 1_000D);
+		return String.format("%.2fms", nanos / 1_000_000D);
+	}
+
 	private static final void message(CommandSender sender, String... messages) {
 		for (String message : messages) sender.sendMessage(ChatColor.GOLD + message);
 	}
@@ -86,7 +137,13 @@ public class BrokerCommands implements CommandExecutor, TabCompleter {
 	@Override
 	public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
 		if (args.length == 0) return Arrays.asList(" ");
-		else if (args.length == 1) return Arrays.asList("reload", "list");
+		else if (args.length == 1) return Arrays.asList("reload", "list", "stats");
+		else if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+			Set<String> providers = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+			for (BrokerTimings broker : BrokerTimings.all())
+				providers.add(broker.provider());
+			return Lists.newArrayList(providers);
+		}
 		return Lists.newArrayList();
 	}
 
@@ -22,43 +22,85 @@
  */
 package com.gmail.justisroot.broker.defaults;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.Plugin;
 
 import com.gmail.justisroot.broker.Broker;
+import com.gmail.justisroot.broker.BrokerSettings;
+import com.gmail.justisroot.broker.record.PurchaseRecord;
+import com.gmail.justisroot.broker.record.SaleRecord;
+import com.gmail.justisroot.broker.stats.BrokerTimings;
+import com.gmail.justisroot.broker.stats.BrokerTimings.Method;
 
 public abstract class AbstractBroker<T> implements Broker<T> {
 
 	private final String id;
 	private Plugin plugin;
 	private boolean available;
+	private volatile Optional<QuoteCache> quotes;
+	private volatile BrokerTimings timings;
 
 	protected static final String NO_PERMISSION = "Not permissible";
 
+	/**
+	 * The number of decimal places kept by prices in minor units, so that a price of 1.25 is 125 minor units
+	 */
+	public static final int UNIT_SCALE = 2;
+	/**
+	 * Returned in place of a price in minor units when there is no price
+	 */
+	public static final long NO_PRICE = Long.MIN_VALUE;
+
+	private static final double UNITS_PER_WHOLE = Math.pow(10, UNIT_SCALE);
+
+	private static final List<String> CONFIGURATIONS = List.of("config.yml");
+
+	private static final ThreadLocal<Set<Runnable>> DEFERRED = new ThreadLocal<>();
+
+	private static final Map<String, Boolean> PRESENT = new ConcurrentHashMap<>();
+
 	protected AbstractBroker(String required, String... packages) {
-		try {
-			// Validate required packages exist
-			Class.forName(required);
-			for (String p : packages)
-				Class.forName(p);
-
-			available = true;
-		} catch (Exception e) {
-			available = false;
-		}
+		// Validate required packages exist
+		boolean available = present(required);
+		for (int i = 0; available && i < packages.length; i++)
+			available = present(packages[i]);
+		this.available = available;
 
 		// Set the ID of this Broker to the class name of the farthest implemented descendant
-		Class<?> clazz = null;
-		StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-		for (int i = 1; i < trace.length; i++) {
+		String name = getClass().getName();
+		this.id = name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Check whether the named class can be found, without initializing it.<br>
+	 * Results are remembered, since every Broker of a provider probes the same classes.
+	 */
+	private static boolean present(String name) {
+		return PRESENT.computeIfAbsent(name, key -> {
 			try {
-				Class<?> checkClazz = Class.forName(trace[i].getClassName());
-				if (checkClazz.isInstance(this)) clazz = checkClazz;
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
+				Class.forName(key, false, AbstractBroker.class.getClassLoader());
+				return true;
+			} catch (ClassNotFoundException | LinkageError e) {
+				return false;
 			}
-		}
-		this.id = clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1);
+		});
+	}
+
+	/**
+	 * Forget which classes were found, so that plugins loaded since are noticed by the next Brokers constructed
+	 */
+	public static void forgetProbes() {
+		PRESENT.clear();
 	}
 
 	public Plugin plugin() {
@@ -70,6 +112,397 @@ public abstract class AbstractBroker<T> implements Broker<T> {
 		available = false;
 	}
 
+	/**
+	 * Get the settings configured for this Broker's provider
+	 * @return this Broker's settings section, empty if none are configured
+	 */
+	protected ConfigurationSection settings() {
+		return BrokerSettings.section(getProvider());
+	}
+
+	/**
+	 * Get the names of the files in the provider's data folder that this Broker is built from, so that a reload can tell whether it needs rebuilding.<br>
+	 * Files the provider writes as it runs, like its shop data or logs, shouldn't be listed or almost every reload would rebuild this Broker.
+	 * @return the provider's configuration files, just config.yml unless overridden
+	 */
+	public List<String> configurations() {
+		return CONFIGURATIONS;
+	}
+
+	/**
+	 * Get the key that quotes of the provided object are cached under.<br>
+	 * Objects which are priced alike should share a key, and the key mustn't change once cached.
+	 * @param object the object being priced
+	 * @return the object's cache key
+	 */
+	protected Object cacheKey(T object) {
+		return object;
+	}
+
+	private QuoteCache quotes() {
+		Optional<QuoteCache> quotes = this.quotes;
+		if (quotes == null) {
+			Class<T> type = getType();
+			quotes = Optional.ofNullable(QuoteCache.create(getId(), BrokerSettings.section(getProvider() + ".quote-cache"), object -> type.isInstance(object) ? cacheKey(type.cast(object)) : null));
+			this.quotes = quotes;
+		}
+		return quotes.orElse(null);
+	}
+
+	/**
+	 * Drop every quote cached for this Broker, so that prices it has replaced aren't quoted again
+	 */
+	protected final void invalidateQuotes() {
+		Optional<QuoteCache> quotes = this.quotes;
+		if (quotes != null) quotes.ifPresent(QuoteCache::clear);
+	}
+
+	private BrokerTimings timings() {
+		BrokerTimings timings = this.timings;
+		if (timings == null) this.timings = timings = BrokerTimings.of(getProvider(), getId());
+		return timings;
+	}
+
+	/**
+	 * Time the provided completion, so that the time taken to complete this Broker's transactions is recorded along with its other methods
+	 * @param completion the completion to pass on {@code #buildSuccess(Runnable)}
+	 * @return the timed completion
+	 */
+	protected final Runnable timed(Runnable completion) {
+		return () -> {
+			long start = System.nanoTime();
+			try {
+				completion.run();
+			} finally {
+				timings().record(Method.COMPLETION, start);
+			}
+		};
+	}
+
+	@Override
+	public final boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, T object) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return false;
+			return handlesPurchase(playerID, worldID, object);
+		} finally {
+			exit(entered);
+			timings().record(Method.HANDLES_PURCHASES, start);
+		}
+	}
+
+	@Override
+	public final boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, T object) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return false;
+			return handlesSale(playerID, worldID, object);
+		} finally {
+			exit(entered);
+			timings().record(Method.HANDLES_SALES, start);
+		}
+	}
+
+	@Override
+	public final boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, T object) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return false;
+			QuoteCache quotes = quotes();
+			if (quotes == null) return buyable(playerID, worldID, object);
+			return quotes.get(QuoteCache.BUYABLE, playerID, worldID, cacheKey(object), 1, () -> buyable(playerID, worldID, object));
+		} finally {
+			exit(entered);
+			timings().record(Method.CAN_BE_BOUGHT, start);
+		}
+	}
+
+	@Override
+	public final boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, T object) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return false;
+			QuoteCache quotes = quotes();
+			if (quotes == null) return sellable(playerID, worldID, object);
+			return quotes.get(QuoteCache.SELLABLE, playerID, worldID, cacheKey(object), 1, () -> sellable(playerID, worldID, object));
+		} finally {
+			exit(entered);
+			timings().record(Method.CAN_BE_SOLD, start);
+		}
+	}
+
+	@Override
+	public final Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return Optional.empty();
+			QuoteCache quotes = quotes();
+			if (quotes == null) return buyPrice(playerID, worldID, object, amount);
+			return quotes.get(QuoteCache.BUY, playerID, worldID, cacheKey(object), amount, () -> buyPrice(playerID, worldID, object, amount));
+		} finally {
+			exit(entered);
+			timings().record(Method.GET_BUY_PRICE, start);
+		}
+	}
+
+	@Override
+	public final Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return Optional.empty();
+			QuoteCache quotes = quotes();
+			if (quotes == null) return sellPrice(playerID, worldID, object, amount);
+			return quotes.get(QuoteCache.SELL, playerID, worldID, cacheKey(object), amount, () -> sellPrice(playerID, worldID, object, amount));
+		} finally {
+			exit(entered);
+			timings().record(Method.GET_SELL_PRICE, start);
+		}
+	}
+
+	/**
+	 * Get the price of buying the provided amount of the object in minor units, without allocating a BigDecimal or Optional.<br>
+	 * Never served from the quote cache, so every call asks the Broker for its current price. Rounded half up to the nearest minor unit.
+	 * @param playerID the ID of the player buying, if any
+	 * @param worldID the ID of the world the purchase is made in, if any
+	 * @param object the object being bought
+	 * @param amount the amount being bought
+	 * @return the price in minor units, or {@link #NO_PRICE} if the object can't be bought
+	 */
+	public final long getBuyPriceUnits(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return NO_PRICE;
+			return units(buyValue(playerID, worldID, object, amount));
+		} finally {
+			exit(entered);
+			timings().record(Method.GET_BUY_PRICE_UNITS, start);
+		}
+	}
+
+	/**
+	 * Get the price of selling the provided amount of the object in minor units, without allocating a BigDecimal or Optional.<br>
+	 * Never served from the quote cache, so every call asks the Broker for its current price. Rounded half up to the nearest minor unit.
+	 * @param playerID the ID of the player selling, if any
+	 * @param worldID the ID of the world the sale is made in, if any
+	 * @param object the object being sold
+	 * @param amount the amount being sold
+	 * @return the price in minor units, or {@link #NO_PRICE} if the object can't be sold
+	 */
+	public final long getSellPriceUnits(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			if (rejects(object)) return NO_PRICE;
+			return units(sellValue(playerID, worldID, object, amount));
+		} finally {
+			exit(entered);
+			timings().record(Method.GET_SELL_PRICE_UNITS, start);
+		}
+	}
+
+	/**
+	 * Convert a price in minor units to a BigDecimal, for callers that need one
+	 * @param units the price in minor units
+	 * @return the price, or empty if it's {@link #NO_PRICE}
+	 */
+	public static Optional<BigDecimal> price(long units) {
+		return units == NO_PRICE ? Optional.empty() : Optional.of(BigDecimal.valueOf(units, UNIT_SCALE));
+	}
+
+	/**
+	 * Convert a price to minor units
+	 * @param value the price
+	 * @return the price in minor units, or {@link #NO_PRICE} if it isn't finite or can't be held in minor units
+	 */
+	protected static long units(double value) {
+		double units = Math.floor(value * UNITS_PER_WHOLE + 0.5);
+		if (Double.isNaN(units) || units <= NO_PRICE || units >= Long.MAX_VALUE) return NO_PRICE;
+		return (long) units;
+	}
+
+	/**
+	 * Convert a price from {@link #buyValue} or {@link #sellValue} to a BigDecimal
+	 * @param value the price, or NaN if there is none
+	 * @return the price, or empty if there is none or it isn't finite
+	 */
+	protected static Optional<BigDecimal> decimal(double value) {
+		return Double.isFinite(value) ? Optional.of(new BigDecimal(value)) : Optional.empty();
+	}
+
+	@Override
+	public final PurchaseRecord<T> buy(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			return purchase(playerID, worldID, object, amount);
+		} finally {
+			exit(entered);
+			timings().record(Method.BUY, start);
+		}
+	}
+
+	@Override
+	public final SaleRecord<T> sell(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		long start = System.nanoTime();
+		boolean entered = enter(object);
+		try {
+			return sale(playerID, worldID, object, amount);
+		} finally {
+			exit(entered);
+			timings().record(Method.SELL, start);
+		}
+	}
+
+	/**
+	 * Called as each of this Broker's public methods starts handling the provided object, so that whatever is derived from the object,
+	 * such as its cache key, may be derived only once for the whole call
+	 * @param object the object being handled
+	 * @return true if the call was entered, and so must be exited
+	 */
+	protected boolean enter(T object) {
+		return false;
+	}
+
+	/**
+	 * Called as each of this Broker's public methods finishes, with whatever {@link #enter(Object)} returned for it
+	 * @param entered true if the call was entered
+	 */
+	protected void exit(boolean entered) { }
+
+	/**
+	 * Check whether this Broker handles purchases of the provided object
+	 */
+	protected abstract boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, T object);
+
+	/**
+	 * Check whether this Broker handles sales of the provided object
+	 */
+	protected abstract boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, T object);
+
+	/**
+	 * Make a purchase of the provided amount of the object. Pass any completion through {@link #timed(Runnable)}.
+	 */
+	protected abstract PurchaseRecord<T> purchase(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount);
+
+	/**
+	 * Make a sale of the provided amount of the object. Pass any completion through {@link #timed(Runnable)}.
+	 */
+	protected abstract SaleRecord<T> sale(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount);
+
+	/**
+	 * Check, uncached, whether the provided object can be bought.<br>
+	 * Transactions should check this rather than {@link #canBeBought}, so that they're never decided by a stale quote.
+	 */
+	protected abstract boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, T object);
+
+	/**
+	 * Check, uncached, whether the provided object can be sold.<br>
+	 * Transactions should check this rather than {@link #canBeSold}, so that they're never decided by a stale quote.
+	 */
+	protected abstract boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, T object);
+
+	/**
+	 * Check, before any other work, whether the provided object certainly isn't handled by this Broker.<br>
+	 * Objects rejected here are never handled, bought, sold or priced by this Broker's other methods, so the check must never reject what it could handle.
+	 * @param object the object being routed
+	 * @return true if the object is certainly not handled, false if it may be
+	 */
+	protected boolean rejects(T object) {
+		return false;
+	}
+
+	/**
+	 * Get, uncached, the price of buying the provided amount of the object.<br>
+	 * Transactions should charge this rather than {@link #getBuyPrice}, so that they're never priced by a stale quote.
+	 */
+	protected abstract Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount);
+
+	/**
+	 * Get, uncached, the price of selling the provided amount of the object.<br>
+	 * Transactions should pay this rather than {@link #getSellPrice}, so that they're never priced by a stale quote.
+	 */
+	protected abstract Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount);
+
+	/**
+	 * Get, uncached, the price of buying the provided amount of the object as a double, which {@link #getBuyPriceUnits} rounds to minor units.<br>
+	 * Reads {@link #buyPrice} by default. Brokers that price in doubles should override this instead, and answer {@link #buyPrice} with its {@link #decimal(double)},
+	 * so that both paths share one price.
+	 * @return the price, or NaN if the object can't be bought
+	 */
+	protected double buyValue(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		Optional<BigDecimal> value = buyPrice(playerID, worldID, object, amount);
+		return value.isEmpty() ? Double.NaN : value.get().doubleValue();
+	}
+
+	/**
+	 * Get, uncached, the price of selling the provided amount of the object as a double, which {@link #getSellPriceUnits} rounds to minor units.<br>
+	 * Reads {@link #sellPrice} by default. Brokers that price in doubles should override this instead, and answer {@link #sellPrice} with its {@link #decimal(double)},
+	 * so that both paths share one price.
+	 * @return the price, or NaN if the object can't be sold
+	 */
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, object, amount);
+		return value.isEmpty() ? Double.NaN : value.get().doubleValue();
+	}
+
+	/**
+	 * Run the provided task, holding any work which Brokers defer while it runs until it has finished.<br>
+	 * Work deferred more than once within the batch is only done once, so completing many transactions can, for example, save once.
+	 * @param task the task completing any number of transactions
+	 */
+	public static void batch(Runnable task) {
+		if (DEFERRED.get() != null) {
+			task.run();
+			return;
+		}
+		Set<Runnable> deferred = new LinkedHashSet<>();
+		DEFERRED.set(deferred);
+		try {
+			task.run();
+		} finally {
+			DEFERRED.remove();
+			deferred.forEach(Runnable::run);
+		}
+	}
+
+	/**
+	 * Do the provided work now, or once the current {@link #batch(Runnable)} has finished if there is one.<br>
+	 * Work is only done once per batch, so pass the same instance for work which needn't be repeated.
+	 * @param work the work to defer
+	 */
+	protected static void defer(Runnable work) {
+		Set<Runnable> deferred = DEFERRED.get();
+		if (deferred == null) work.run();
+		else deferred.add(work);
+	}
+
+	/**
+	 * Called on the main thread before this Broker is registered, so that it may start anything it runs alongside its queries, such as listeners, tasks or watches.<br>
+	 * Constructors may run off the main thread and shouldn't have side effects; whatever is started here is stopped by {@link #unload()}, which may be called without this having been.
+	 */
+	public void load() { }
+
+	/**
+	 * Persist any changes which this Broker has deferred. Called whenever Broker reloads.
+	 */
+	public void flush() { }
+
+	/**
+	 * Called once this Broker has been unregistered, so that it may release anything it holds and persist any deferred changes.
+	 */
+	public void unload() {
+		Optional<QuoteCache> quotes = this.quotes;
+		if (quotes != null) quotes.ifPresent(cache -> QuoteCache.remove(getId(), cache));
+		flush();
+	}
+
 	/**
 	 * Always check if your required library packages are available <b>before</b> attempting to access them
 	 * @return true if the provided packages are available and the providing plugin is enabled, false otherwise
@@ -78,6 +511,16 @@ public abstract class AbstractBroker<T> implements Broker<T> {
 		return available && plugin() != null && plugin.isEnabled();
 	}
 
+	/**
+	 * Whether this Broker may be queried off the main thread.<br>
+	 * Brokers reading their provider's state through Bukkit or through unsynchronized plugin data should leave this false,
+	 * so that {@link com.gmail.justisroot.broker.quote.AsyncQuotes} queries them on the main thread.
+	 * @return true if this Broker's queries are safe to make from any thread, false otherwise
+	 */
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getId() {
 		return id;
@@ -0,0 +1,83 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * The player and world a Broker is being called for, resolved from their IDs.<br>
+ * Nothing is kept between calls, so a context never holds on to a player who has quit or a world which has unloaded.
+ * The player is found through {@link OnlinePlayers}, a single probe, and the world only once it's asked for.
+ */
+public final class CallContext {
+
+	private static final CallContext NONE = new CallContext(Optional.empty(), null, Optional.empty());
+
+	private final Optional<UUID> playerID, worldID;
+	private final Player player;
+
+	private CallContext(Optional<UUID> playerID, Player player, Optional<UUID> worldID) {
+		this.playerID = playerID;
+		this.player = player;
+		this.worldID = worldID;
+	}
+
+	/**
+	 * Get the context of a call for the provided player and world
+	 * @param playerID the ID of the player passed to the Broker
+	 * @param worldID the ID of the world passed to the Broker
+	 * @return the resolved context
+	 */
+	public static CallContext of(Optional<UUID> playerID, Optional<UUID> worldID) {
+		if (playerID.isEmpty() && worldID.isEmpty()) return NONE;
+		return new CallContext(playerID, playerID.isEmpty() ? null : OnlinePlayers.get(playerID.get()), worldID);
+	}
+
+	public Optional<UUID> playerID() {
+		return playerID;
+	}
+
+	public Optional<UUID> worldID() {
+		return worldID;
+	}
+
+	/**
+	 * @return the online player this call is for, or null if there's none
+	 */
+	public Player player() {
+		return player;
+	}
+
+	/**
+	 * @return the loaded world this call is for, or null if there's none
+	 */
+	public World world() {
+		return worldID.isEmpty() ? null : Bukkit.getWorld(worldID.get());
+	}
+
+}
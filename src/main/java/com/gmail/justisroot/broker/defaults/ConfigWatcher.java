@@ -0,0 +1,199 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+
+/**
+ * Watches the configuration files which Brokers snapshot their prices from, so that the snapshots can be rebuilt as the files change.<br>
+ * One daemon thread watches the directories of every watched file. Bursts of changes to a file are debounced,
+ * and the file's callback is run on that thread once the file has been left alone for a moment.
+ */
+public final class ConfigWatcher {
+
+	private ConfigWatcher() { }
+
+	private static final long DEBOUNCE = TimeUnit.MILLISECONDS.toNanos(500);
+
+	private static final Object LOCK = new Object();
+	private static final Map<Path, WatchKey> DIRECTORIES = new HashMap<>();
+	private static final Map<Path, List<Watch>> FILES = new HashMap<>();
+	// Watches with changes waiting out the debounce, mapped to when they're due
+	private static final Map<Watch, Long> PENDING = new HashMap<>();
+	private static WatchService service;
+
+	/**
+	 * Run the provided callback on the watcher's thread whenever the provided file is created or modified
+	 * @param file the file to watch
+	 * @param changed the callback, which should rebuild whatever was read from the file
+	 * @return the watch, to be closed once the file is no longer of interest
+	 * @throws IOException if the file's directory can't be watched
+	 */
+	public static Watch watch(File file, Runnable changed) throws IOException {
+		Path path = file.toPath().toAbsolutePath().normalize();
+		Path directory = path.getParent();
+		Watch watch = new Watch(path, changed);
+		synchronized (LOCK) {
+			if (service == null) start();
+			if (!DIRECTORIES.containsKey(directory)) {
+				try {
+					DIRECTORIES.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+				} catch (IOException e) {
+					if (DIRECTORIES.isEmpty()) stop();
+					throw e;
+				}
+			}
+			FILES.computeIfAbsent(path, p -> new ArrayList<>()).add(watch);
+		}
+		return watch;
+	}
+
+	private static void start() throws IOException {
+		WatchService service = FileSystems.getDefault().newWatchService();
+		ConfigWatcher.service = service;
+		Thread thread = new Thread(() -> run(service), "Broker Config Watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static void stop() {
+		try {
+			service.close();
+		} catch (IOException e) {
+			Bukkit.getLogger().log(Level.WARNING, "Unable to stop watching configuration files", e);
+		}
+		service = null;
+	}
+
+	private static void run(WatchService service) {
+		try {
+			while (true) {
+				WatchKey key = service.poll(untilDue(), TimeUnit.NANOSECONDS);
+				if (key != null) changed(key);
+				for (Watch watch : due()) {
+					try {
+						watch.changed.run();
+					} catch (RuntimeException e) {
+						Bukkit.getLogger().log(Level.WARNING, "Unable to reindex " + watch.path, e);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			return;
+		}
+	}
+
+	private static void changed(WatchKey key) {
+		Path directory = (Path) key.watchable();
+		long due = System.nanoTime() + DEBOUNCE;
+		synchronized (LOCK) {
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					// Changes were lost, so anything in the directory may have changed
+					for (Map.Entry<Path, List<Watch>> file : FILES.entrySet())
+						if (directory.equals(file.getKey().getParent())) for (Watch watch : file.getValue()) PENDING.put(watch, due);
+					continue;
+				}
+				List<Watch> watches = FILES.get(directory.resolve((Path) event.context()));
+				if (watches != null) for (Watch watch : watches) PENDING.put(watch, due);
+			}
+		}
+		key.reset();
+	}
+
+	private static long untilDue() {
+		synchronized (LOCK) {
+			if (PENDING.isEmpty()) return Long.MAX_VALUE;
+			long now = System.nanoTime(), wait = Long.MAX_VALUE;
+			for (long due : PENDING.values())
+				wait = Math.min(wait, due - now);
+			return Math.max(wait, 0);
+		}
+	}
+
+	private static List<Watch> due() {
+		List<Watch> due = new ArrayList<>();
+		long now = System.nanoTime();
+		synchronized (LOCK) {
+			Iterator<Map.Entry<Watch, Long>> pending = PENDING.entrySet().iterator();
+			while (pending.hasNext()) {
+				Map.Entry<Watch, Long> entry = pending.next();
+				if (now - entry.getValue() < 0) continue;
+				due.add(entry.getKey());
+				pending.remove();
+			}
+		}
+		return due;
+	}
+
+	/**
+	 * A file being watched on behalf of a Broker
+	 */
+	public static final class Watch implements AutoCloseable {
+
+		private final Path path;
+		private final Runnable changed;
+
+		private Watch(Path path, Runnable changed) {
+			this.path = path;
+			this.changed = changed;
+		}
+
+		/**
+		 * Stop watching, stopping the watcher's thread if nothing else is being watched
+		 */
+		@Override
+		public void close() {
+			synchronized (LOCK) {
+				PENDING.remove(this);
+				List<Watch> watches = FILES.get(path);
+				if (watches == null || !watches.remove(this) || !watches.isEmpty()) return;
+				FILES.remove(path);
+				Path directory = path.getParent();
+				for (Path file : FILES.keySet())
+					if (directory.equals(file.getParent())) return;
+				WatchKey key = DIRECTORIES.remove(directory);
+				if (key != null) key.cancel();
+				if (DIRECTORIES.isEmpty()) stop();
+			}
+		}
+	}
+
+}
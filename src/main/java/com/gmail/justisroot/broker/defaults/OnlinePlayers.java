@@ -0,0 +1,133 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Broker's own table of online players by their IDs, kept by join and quit listeners.<br>
+ * The table is open addressed and replaced whole on every join and quit, so any thread can read it with a single probe
+ * without reaching into the server's player list.
+ */
+public final class OnlinePlayers {
+
+	private OnlinePlayers() { }
+
+	private static volatile Table table = new Table(new Player[0], 0);
+
+	/**
+	 * Get the online player with the provided ID
+	 * @param id the player's ID
+	 * @return the player, or null if they aren't online
+	 */
+	public static Player get(UUID id) {
+		return table.get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+	}
+
+	/**
+	 * Replace the table with one of the provided players. Only call from the main thread.
+	 * @param players every online player
+	 */
+	public static void reset(Collection<? extends Player> players) {
+		table = new Table(players.toArray(new Player[0]), players.size());
+	}
+
+	/**
+	 * Add the provided player to the table. Only call from the main thread.
+	 */
+	public static void add(Player player) {
+		Table table = OnlinePlayers.table;
+		Player[] players = table.players(1);
+		players[table.size] = player;
+		OnlinePlayers.table = new Table(players, table.size + 1);
+	}
+
+	/**
+	 * Remove the player with the provided ID from the table. Only call from the main thread.
+	 */
+	public static void remove(UUID id) {
+		Table table = OnlinePlayers.table;
+		Player[] players = table.players(0);
+		int size = 0;
+		for (Player player : players)
+			if (!player.getUniqueId().equals(id)) players[size++] = player;
+		OnlinePlayers.table = new Table(players, size);
+	}
+
+	private static final class Table {
+
+		private final long[] most, least;
+		private final Player[] slots;
+		private final int mask, size;
+
+		/**
+		 * Build a table of the first {@code size} of the provided players, at no more than half full
+		 */
+		private Table(Player[] players, int size) {
+			int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+			this.most = new long[capacity];
+			this.least = new long[capacity];
+			this.slots = new Player[capacity];
+			this.mask = capacity - 1;
+			int added = 0;
+			for (int i = 0; i < size; i++) {
+				UUID id = players[i].getUniqueId();
+				long most = id.getMostSignificantBits(), least = id.getLeastSignificantBits();
+				int slot = index(most, least);
+				while (slots[slot] != null && (this.most[slot] != most || this.least[slot] != least))
+					slot = (slot + 1) & mask;
+				if (slots[slot] == null) added++;
+				this.most[slot] = most;
+				this.least[slot] = least;
+				slots[slot] = players[i];
+			}
+			this.size = added;
+		}
+
+		private Player get(long most, long least) {
+			for (int slot = index(most, least); slots[slot] != null; slot = (slot + 1) & mask)
+				if (this.most[slot] == most && this.least[slot] == least) return slots[slot];
+			return null;
+		}
+
+		private int index(long most, long least) {
+			long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+			return (int) (hash >>> 32) & mask;
+		}
+
+		/**
+		 * Copy the players in this table into a new array, with room for the provided number more
+		 */
+		private Player[] players(int extra) {
+			Player[] players = new Player[size + extra];
+			int count = 0;
+			for (Player player : slots)
+				if (player != null) players[count++] = player;
+			return players;
+		}
+	}
+
+}
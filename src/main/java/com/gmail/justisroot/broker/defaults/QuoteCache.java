@@ -0,0 +1,193 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Reuses a Broker's quotes for a configured time, keyed by player, world, object and amount.<br>
+ * Every quote of an object is dropped once a trade of that object completes through the same Broker.<br>
+ * Expired quotes are dropped as they're found, and once the cache is full the quotes of the least recently quoted objects make room for new ones.
+ */
+public final class QuoteCache {
+
+	static final int BUY = 0, SELL = 1, BUYABLE = 2, SELLABLE = 3;
+
+	private static final int DEFAULT_SIZE = 1024;
+
+	private static final Map<String, QuoteCache> CACHES = new ConcurrentHashMap<>();
+
+	private final Function<Object, Object> keys;
+	private final long ttl;
+	private final int size;
+	// In access order, so the eldest objects are the least recently quoted
+	private final Map<Object, Map<Quote, Entry>> quotes = new LinkedHashMap<>(16, 0.75f, true);
+	private int count;
+	private long generation;
+
+	private QuoteCache(Function<Object, Object> keys, long ttl, int size) {
+		this.keys = keys;
+		this.ttl = ttl;
+		this.size = size;
+	}
+
+	/**
+	 * Create and register a cache for the Broker with the provided ID
+	 * @param id the ID of the Broker
+	 * @param settings the Broker's quote-cache settings
+	 * @param keys converts a traded object into the key its quotes are cached under, or null if it isn't of the Broker's type
+	 * @return the Broker's cache, or null if its quotes aren't to be cached
+	 */
+	static QuoteCache create(String id, ConfigurationSection settings, Function<Object, Object> keys) {
+		long ttl = TimeUnit.MILLISECONDS.toNanos(settings.getLong("ttl"));
+		int size = settings.getInt("size", DEFAULT_SIZE);
+		if (ttl <= 0 || size <= 0) {
+			CACHES.remove(id);
+			return null;
+		}
+		QuoteCache cache = new QuoteCache(keys, ttl, size);
+		CACHES.put(id, cache);
+		return cache;
+	}
+
+	static void remove(String id, QuoteCache cache) {
+		CACHES.remove(id, cache);
+	}
+
+	/**
+	 * Drop every cached quote of the provided object by the Broker with the provided ID
+	 * @param id the ID of the Broker the object was traded through
+	 * @param object the traded object
+	 */
+	public static void invalidate(String id, Object object) {
+		QuoteCache cache = CACHES.get(id);
+		if (cache == null || object == null) return;
+		Object key = cache.keys.apply(object);
+		if (key == null) return;
+		synchronized (cache) {
+			cache.generation++;
+			Map<Quote, Entry> removed = cache.quotes.remove(key);
+			if (removed != null) cache.count -= removed.size();
+		}
+	}
+
+	/**
+	 * Drop every cached quote, as when the prices they were made from have all been replaced
+	 */
+	void clear() {
+		synchronized (this) {
+			generation++;
+			quotes.clear();
+			count = 0;
+		}
+	}
+
+	/**
+	 * Get the cached quote, or make and cache a new one if there's none or it has expired.<br>
+	 * The quote is made without holding the cache, and isn't cached if the object was traded in the meantime.
+	 */
+	@SuppressWarnings("unchecked")
+	<V> V get(int kind, Optional<UUID> playerID, Optional<UUID> worldID, Object key, int amount, Supplier<V> quoter) {
+		Quote quote = new Quote(kind, playerID.orElse(null), worldID.orElse(null), amount);
+		long now = System.nanoTime(), generation;
+		synchronized (this) {
+			Map<Quote, Entry> cached = quotes.get(key);
+			Entry entry = cached == null ? null : cached.get(quote);
+			if (entry != null) {
+				if (now - entry.expires < 0) return (V) entry.value;
+				cached.remove(quote);
+				count--;
+				if (cached.isEmpty()) quotes.remove(key);
+			}
+			generation = this.generation;
+		}
+		V value = quoter.get();
+		synchronized (this) {
+			if (generation != this.generation) return value;
+			if (quotes.computeIfAbsent(key, k -> new HashMap<>()).put(quote, new Entry(value, now + ttl)) == null) count++;
+			evict();
+		}
+		return value;
+	}
+
+	/**
+	 * Drop the quotes of the least recently quoted objects until no more than the configured number of quotes are held
+	 */
+	private void evict() {
+		Iterator<Map<Quote, Entry>> eldest = quotes.values().iterator();
+		while (count > size && eldest.hasNext()) {
+			count -= eldest.next().size();
+			eldest.remove();
+		}
+	}
+
+	private static final class Quote {
+
+		private final int kind, amount;
+		private final UUID playerID, worldID;
+
+		private Quote(int kind, UUID playerID, UUID worldID, int amount) {
+			this.kind = kind;
+			this.playerID = playerID;
+			this.worldID = worldID;
+			this.amount = amount;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(kind, playerID, worldID, amount);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Quote)) return false;
+			Quote other = (Quote) obj;
+			return kind == other.kind && amount == other.amount && Objects.equals(playerID, other.playerID) && Objects.equals(worldID, other.worldID);
+		}
+	}
+
+	private static final class Entry {
+
+		private final Object value;
+		private final long expires;
+
+		private Entry(Object value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults.itemstack;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.gmail.justisroot.broker.defaults.itemstack.ItemBroker.Pricer;
+
+/**
+ * The price of every slot of an inventory's contents, quoted at once.<br>
+ * Similar stacks are merged and priced as a single volume, and that price is split between their slots by amount.
+ */
+public final class BulkQuote {
+
+	private final BigDecimal[] prices;
+	private final BigDecimal total;
+
+	BulkQuote(ItemStack[] contents, Pricer pricer) {
+		this.prices = new BigDecimal[contents.length];
+		Map<ItemFingerprint, Line> lines = new LinkedHashMap<>();
+		for (int slot = 0; slot < contents.length; slot++) {
+			ItemStack stack = contents[slot];
+			if (stack == null || stack.getType() == Material.AIR || stack.getAmount() <= 0) continue;
+			lines.computeIfAbsent(ItemFingerprint.of(stack), key -> new Line(stack)).add(slot, stack.getAmount());
+		}
+		BigDecimal total = BigDecimal.ZERO;
+		for (Entry<ItemFingerprint, Line> entry : lines.entrySet()) {
+			Line line = entry.getValue();
+			Optional<BigDecimal> price = pricer.price(entry.getKey(), line.item, line.amount);
+			if (price.isEmpty()) continue;
+			line.split(price.get(), prices);
+			total = total.add(price.get());
+		}
+		this.total = total;
+	}
+
+	/**
+	 * Get the total price of every priced slot
+	 * @return the total price, zero if nothing could be priced
+	 */
+	public BigDecimal total() {
+		return total;
+	}
+
+	/**
+	 * Get the price of the stack in the provided slot
+	 * @param slot the slot of the quoted contents
+	 * @return the price of the slot's stack, or empty if the slot was empty or couldn't be priced
+	 */
+	public Optional<BigDecimal> price(int slot) {
+		if (slot < 0 || slot >= prices.length) return Optional.empty();
+		return Optional.ofNullable(prices[slot]);
+	}
+
+	/**
+	 * Get the price of every priced slot
+	 * @return an unmodifiable map of each priced slot to the price of its stack, in slot order
+	 */
+	public Map<Integer, BigDecimal> prices() {
+		Map<Integer, BigDecimal> map = new LinkedHashMap<>();
+		for (int slot = 0; slot < prices.length; slot++)
+			if (prices[slot] != null) map.put(slot, prices[slot]);
+		return Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * Check if any slot could be priced
+	 * @return true if no slot could be priced, false otherwise
+	 */
+	public boolean isEmpty() {
+		return Arrays.stream(prices).allMatch(Objects::isNull);
+	}
+
+	/**
+	 * Every slot holding similar stacks, priced as one volume of a single item
+	 */
+	private static final class Line {
+
+		private final ItemStack item;
+		private int[] slots = new int[4], amounts = new int[4];
+		private int size, amount;
+
+		private Line(ItemStack stack) {
+			this.item = stack.clone();
+			this.item.setAmount(1);
+		}
+
+		private void add(int slot, int amount) {
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size * 2);
+				amounts = Arrays.copyOf(amounts, size * 2);
+			}
+			slots[size] = slot;
+			amounts[size++] = amount;
+			this.amount += amount;
+		}
+
+		/**
+		 * Split the price between this line's slots by their amounts, leaving any rounding to the last so they sum to the price
+		 */
+		private void split(BigDecimal price, BigDecimal[] prices) {
+			BigDecimal remaining = price;
+			for (int i = 0; i < size - 1; i++) {
+				BigDecimal share = price.multiply(BigDecimal.valueOf(amounts[i])).divide(BigDecimal.valueOf(amount), MathContext.DECIMAL64);
+				prices[slots[i]] = share;
+				remaining = remaining.subtract(share);
+			}
+			prices[slots[size - 1]] = remaining;
+		}
+	}
+
+}
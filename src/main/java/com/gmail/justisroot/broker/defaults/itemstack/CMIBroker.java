@@ -47,45 +47,53 @@ public class CMIBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getBuyPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return buyPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(buyValue(playerID, worldID, item, amount));
+	}
+
+	@Override
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(sellValue(playerID, worldID, item, amount));
+	}
+
+	@Override
+	protected double buyValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		WorthItem wi = CMI.getInstance().getWorthManager().getWorth(item);
-		if (wi == null) return Optional.empty();
+		if (wi == null) return Double.NaN;
 		double value = wi.getBuyPrice();
-		if (value <= 0) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+		return value <= 0 ? Double.NaN : value * amount;
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		WorthItem wi = CMI.getInstance().getWorthManager().getWorth(item);
-		if (wi == null) return Optional.empty();
+		if (wi == null) return Double.NaN;
 		double value = wi.getSellPrice();
-		if (value <= 0) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+		return value <= 0 ? Double.NaN : value * amount;
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		PurchaseRecordBuilder<ItemStack> record = PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getBuyPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = buyPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return record.buildFailure(NO_PERMISSION);
 		return record.setValue(value.get()).buildSuccess();
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> record = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return record.buildFailure(NO_PERMISSION);
 		return record.setValue(value.get()).buildSuccess();
 	}
@@ -96,12 +104,12 @@ public class CMIBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
@@ -23,15 +23,19 @@
 package com.gmail.justisroot.broker.defaults.itemstack;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.WeakHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import com.gmail.justisroot.broker.defaults.CallContext;
 import com.gmail.justisroot.broker.record.PurchaseRecord;
 import com.gmail.justisroot.broker.record.SaleRecord;
 import com.gmail.justisroot.broker.record.SaleRecord.SaleRecordBuilder;
@@ -46,6 +50,8 @@ import me.clip.autosell.objects.Shop;
 public final class ClipAutoSellBroker extends ItemBroker {
 
 	private AutoSell plugin;
+	// AutoSell replaces its shops when it reloads, so indexes of replaced shops are left to be collected
+	private final Map<Shop, PriceIndex> indexes = new WeakHashMap<>();
 
 	public ClipAutoSellBroker() {
 		super("me.clip.autosell.AutoSell", "me.clip.autosell.SellHandler", "me.clip.autosell.objects.Shop");
@@ -59,49 +65,73 @@ public final class ClipAutoSellBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return false;
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		return Optional.empty();
 	}
 
 	@Override
-	@SuppressWarnings("deprecation")
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
-		if (playerID.isEmpty()) return Optional.empty();
-		Player player = Bukkit.getPlayer(playerID.get());
-		if (player == null) return Optional.empty();
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(sellValue(playerID, worldID, item, amount));
+	}
+
+	@Override
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		Shop shop = shop(playerID, worldID);
+		if (shop == null) return Double.NaN;
+		return index(shop).price(ItemFingerprint.of(item), amount);
+	}
+
+	/**
+	 * The player's shop and its price index are resolved once for every stack
+	 */
+	@Override
+	protected Pricer salePricer(Optional<UUID> playerID, Optional<UUID> worldID) {
+		Shop shop = shop(playerID, worldID);
+		if (shop == null) return (key, item, amount) -> Optional.empty();
+		PriceIndex index = index(shop);
+		return (key, item, amount) -> decimal(index.price(key, amount));
+	}
+
+	/**
+	 * Get the shop which the provided player sells to, or null if there is none
+	 */
+	private Shop shop(Optional<UUID> playerID, Optional<UUID> worldID) {
+		Player player = CallContext.of(playerID, worldID).player();
+		if (player == null) return null;
 		Shop shop = SellHandler.getShop(player);
 		if (shop == null && plugin.getOptions().sellAllFallbackToPermShop())
 			shop = SellHandler.getPermShop(player);
-		if (shop == null) return Optional.empty();
-		for (Entry<ItemStack, Double> compare : shop.getPrices().entrySet()) {
-			if (compare.getValue() <= 0) continue;
-			ItemStack converted = compare.getKey().clone();
-			Material convertedMat = Bukkit.getUnsafe().fromLegacy(converted.getType());
-			if (convertedMat != converted.getType()) converted.setType(convertedMat);
-			if (item.equals(converted)) return Optional.of(new BigDecimal(compare.getValue() * amount));
-		}
-		return Optional.empty();
+		return shop;
+	}
+
+	/**
+	 * Get the price index for the provided shop, compiling it if the shop hasn't been seen or its prices have been replaced
+	 */
+	private PriceIndex index(Shop shop) {
+		PriceIndex index = indexes.get(shop);
+		if (index == null || !index.compiledFrom(shop.getPrices())) indexes.put(shop, index = new PriceIndex(shop.getPrices()));
+		return index;
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		return PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount).buildFailure(NO_PERMISSION);
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> builder = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
 		return builder.setValue(value.get()).buildSuccess(null);
 	}
@@ -112,13 +142,45 @@ public final class ClipAutoSellBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return false;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
+	/**
+	 * A shop's prices, keyed by the fingerprints of their items after converting any legacy materials, excluding those which can't be sold
+	 */
+	private static final class PriceIndex {
+
+		private final Map<ItemStack, Double> source;
+		private final int size;
+		private final Map<ItemFingerprint, Double> prices = new HashMap<>();
+
+		@SuppressWarnings("deprecation")
+		private PriceIndex(Map<ItemStack, Double> source) {
+			this.source = source;
+			this.size = source.size();
+			for (Entry<ItemStack, Double> entry : source.entrySet()) {
+				if (entry.getValue() <= 0) continue;
+				ItemStack converted = entry.getKey().clone();
+				Material convertedMat = Bukkit.getUnsafe().fromLegacy(converted.getType());
+				if (convertedMat != converted.getType()) converted.setType(convertedMat);
+				prices.putIfAbsent(ItemFingerprint.of(converted), entry.getValue());
+			}
+		}
+
+		private double price(ItemFingerprint key, int amount) {
+			Double value = prices.get(key);
+			return value == null ? Double.NaN : value * amount;
+		}
+
+		private boolean compiledFrom(Map<ItemStack, Double> prices) {
+			return source == prices && size == prices.size();
+		}
+	}
+
 }
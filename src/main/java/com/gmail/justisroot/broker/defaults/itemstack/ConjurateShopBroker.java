@@ -50,36 +50,40 @@ public final class ConjurateShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return false;
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return Manager.get().getWorth(item) > 0;
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		return Optional.empty();
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(sellValue(playerID, worldID, item, amount));
+	}
+
+	@Override
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		double value = Manager.get().getWorth(item);
-		if (value <= 0) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+		return value <= 0 ? Double.NaN : value * amount;
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		return PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount).buildFailure(NO_PERMISSION);
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> record = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return record.buildFailure(NO_PERMISSION);
 		return record.setValue(value.get()).buildSuccess(null);
 	}
@@ -90,12 +94,12 @@ public final class ConjurateShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return false;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
@@ -0,0 +1,211 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults.itemstack;
+
+/**
+ * Computes DynamicShop's stock dependent price for any volume without stepping through every unit.<br>
+ * Units are priced by the same rules as stepping one at a time, but consecutive units priced by the same rule are summed in closed form,
+ * with the unit at which the next rule takes over found by binary search.<br>
+ * Runs of a constant unit price are summed exactly as repeated addition would sum them, so the switch between rules happens on the same unit.
+ */
+final class DynamicShopPricing {
+
+	private DynamicShopPricing() { }
+
+	private static final int MAX = 0, MIN = 1, MEDIAN = 2, VALUE = 3;
+
+	// Units stepped through one at a time at the end of every run
+	private static final int STEP_THRESHOLD = 16;
+	// Volumes this small are cheaper to step through entirely
+	private static final int DIRECT_THRESHOLD = 256;
+
+	private static final double EULER = 0.57721566490153286061;
+	private static final double[] HARMONIC = new double[256];
+
+	static {
+		for (int i = 1; i < HARMONIC.length; i++)
+			HARMONIC[i] = HARMONIC[i - 1] + 1D / i;
+	}
+
+	/**
+	 * Get the untaxed, unrounded price of trading the provided volume of an item.<br>
+	 * Each unit is priced at the max while the running total exceeds the max, at the min while it's below the min,
+	 * at median / stock * value while there's a median and more than one in stock, and at the value otherwise.
+	 *
+	 * @param value the value of the item
+	 * @param min the minimum value, or 0 if there is none
+	 * @param max the maximum value, or 0 if there is none
+	 * @param median the median stock, or 0 or less if there is none
+	 * @param stock the stock before the trade
+	 * @param amount the volume traded
+	 * @param sell true if the stock rises with every unit, false if it falls
+	 * @return the total price of the volume
+	 */
+	static double total(double value, double min, double max, double median, long stock, int amount, boolean sell) {
+		Curve curve = new Curve(value, min, max, median, sell);
+		double price = 0;
+		long remaining = amount;
+		while (remaining > DIRECT_THRESHOLD) {
+			int rule = curve.rule(price, stock);
+			long run = curve.run(rule, price, stock, remaining, false);
+			if (run > STEP_THRESHOLD) {
+				// Leave the end of the run to be stepped through, so that the switch to the next rule is decided on a stepped sum
+				long units = run - STEP_THRESHOLD;
+				double next = curve.sum(rule, price, stock, units, true);
+				if (curve.rule(next, stock + curve.direction * units) != rule) {
+					units = curve.run(rule, price, stock, remaining, true) - 1;
+					next = curve.sum(rule, price, stock, units, true);
+				}
+				price = next;
+				stock += curve.direction * units;
+				remaining -= units;
+			}
+			int units = (int) Math.min(STEP_THRESHOLD, remaining);
+			price = curve.step(price, stock, units);
+			stock += curve.direction * units;
+			remaining -= units;
+		}
+		return curve.step(price, stock, (int) remaining);
+	}
+
+	private static final class Curve {
+
+		private final double value, min, max, median;
+		private final int direction;
+
+		private Curve(double value, double min, double max, double median, boolean sell) {
+			this.value = value;
+			this.min = min;
+			this.max = max;
+			this.median = median;
+			this.direction = sell ? 1 : -1;
+		}
+
+		private int rule(double price, long stock) {
+			if (max != 0 && price > max) return MAX;
+			if (min != 0 && price < min) return MIN;
+			if (median > 0 && stock > 1) return MEDIAN;
+			return VALUE;
+		}
+
+		/**
+		 * Get the running total after pricing the provided number of units one at a time
+		 */
+		private double step(double price, double stock, int units) {
+			for (int i = 0; i < units; i++) {
+				if (max != 0 && price > max) {
+					price += max;
+				} else if (min != 0 && price < min) {
+					price += min;
+				} else if (median > 0 && stock > 1) {
+					price += median / stock * value;
+				} else {
+					price += value;
+				}
+				stock += direction;
+			}
+			return price;
+		}
+
+		private double unit(int rule, long stock) {
+			switch (rule) {
+				case MAX: return max;
+				case MIN: return min;
+				case MEDIAN: return median / stock * value;
+				default: return value;
+			}
+		}
+
+		/**
+		 * Get the running total after the provided number of units have all been priced by the provided rule.<br>
+		 * Sums of a constant unit price are either estimated by multiplication, or made exactly as repeated addition would make them.
+		 */
+		private double sum(int rule, double price, long stock, long units, boolean exact) {
+			if (rule != MEDIAN) return exact ? repeat(price, unit(rule, stock), units) : price + unit(rule, stock) * units;
+			double sum = direction > 0 ? harmonicDifference(stock + units - 1, stock - 1) : harmonicDifference(stock, stock - units);
+			return price + median * sum * value;
+		}
+
+		/**
+		 * Get the number of consecutive units, no more than the remaining volume, priced by the provided rule.<br>
+		 * Every rule's conditions flip at most once while its own units are added, so the first unit priced otherwise can be binary searched.
+		 */
+		private long run(int rule, double price, long stock, long remaining, boolean exact) {
+			long low = 1, high = remaining;
+			// Falling stock leaves the median rule once one remains, which also keeps the harmonic sum in range
+			if (rule == MEDIAN && direction < 0) high = Math.min(high, stock - 1);
+			while (low < high) {
+				long mid = (low + high) >>> 1;
+				if (rule(sum(rule, price, stock, mid, exact), stock + direction * mid) == rule) low = mid + 1;
+				else high = mid;
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Get the result of adding the unit to the price the provided number of times, rounded exactly as repeated addition would be.<br>
+	 * While the sum stays within one binade every addition rounds the unit to the same multiple of that binade's ulp,
+	 * so after a few additions to settle that rounding, the rest within the binade can be made at once.
+	 */
+	static double repeat(double price, double unit, long units) {
+		while (units > 3) {
+			double first = price + unit, second = first + unit, third = second + unit;
+			units -= 3;
+			price = third;
+			double step = third - second;
+			if (step != second - first || Math.getExponent(first) != Math.getExponent(third) || Math.abs(first) < Double.MIN_NORMAL) continue;
+			if (step == 0) return price;
+			int exponent = Math.getExponent(price);
+			// Distance to the edge of the binade being approached, less enough margin for the final addition to round within this binade
+			double room = (step > 0) == (price > 0) ? Math.scalb(1D, exponent + 1) - Math.abs(price) : Math.abs(price) - Math.scalb(1D, exponent);
+			long additions = Math.min(units, (long) ((room - 2 * Math.ulp(price)) / Math.abs(step)) - 2);
+			if (additions <= 0) continue;
+			price += step * additions;
+			units -= additions;
+		}
+		for (; units > 0; units--)
+			price += unit;
+		return price;
+	}
+
+	/**
+	 * Get H(high) - H(low), the sum of 1 / n for all n greater than low and no greater than high
+	 */
+	private static double harmonicDifference(long high, long low) {
+		if (low < HARMONIC.length) return harmonic(high) - harmonic(low);
+		return Math.log1p((double) (high - low) / low) + harmonicTail(high) - harmonicTail(low);
+	}
+
+	private static double harmonic(long n) {
+		if (n < HARMONIC.length) return HARMONIC[(int) n];
+		return Math.log(n) + EULER + harmonicTail(n);
+	}
+
+	// Asymptotic expansion of H(n) - ln(n) - EULER
+	private static double harmonicTail(long n) {
+		double inverse = 1D / n, square = inverse * inverse;
+		return inverse / 2 - square * (1D / 12 - square * (1D / 120 - square / 252));
+	}
+
+}
@@ -53,36 +53,36 @@ public final class EssentialsXBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return false;
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		return Optional.empty();
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		BigDecimal w = def.getPrice(item);
 		if (w == null || w.doubleValue() <= 0) return Optional.empty();
 		return Optional.of(w.multiply(BigDecimal.valueOf(amount)));
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		return PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount).buildFailure(NO_PERMISSION);
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> builder = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
 		return builder.setValue(value.get()).buildSuccess(null);
 	}
@@ -93,12 +93,12 @@ public final class EssentialsXBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return false;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
@@ -49,43 +49,43 @@ public final class GUIShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return GuiShopAPI.canBeBought(item);
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return GuiShopAPI.canBeSold(item);
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		BigDecimal value = GuiShopAPI.getBuyPrice(item, amount);
 		return Optional.ofNullable(value.doubleValue() > 0 ? value : null);
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		BigDecimal value = GuiShopAPI.getSellPrice(item, amount);
 		return Optional.ofNullable(value.doubleValue() > 0 ? value : null);
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		PurchaseRecordBuilder<ItemStack> builder = PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount);
-		if (!canBeBought(playerID, worldID, item)) return builder.buildFailure(NO_PERMISSION);
-		Optional<BigDecimal> value = getBuyPrice(playerID, worldID, item, amount);
+		if (!buyable(playerID, worldID, item)) return builder.buildFailure(NO_PERMISSION);
+		Optional<BigDecimal> value = buyPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
-		return builder.setValue(value.get()).buildSuccess(() -> GuiShopAPI.indicateBoughtItems(item, amount));
+		return builder.setValue(value.get()).buildSuccess(timed(() -> GuiShopAPI.indicateBoughtItems(item, amount)));
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> builder = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		if (!canBeSold(playerID, worldID, item)) return builder.buildFailure(NO_PERMISSION);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		if (!sellable(playerID, worldID, item)) return builder.buildFailure(NO_PERMISSION);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
-		return builder.setValue(value.get()).buildSuccess(() -> GuiShopAPI.indicateSoldItems(item, amount));
+		return builder.setValue(value.get()).buildSuccess(timed(() -> GuiShopAPI.indicateSoldItems(item, amount)));
 	}
 
 	@Override
@@ -94,12 +94,12 @@ public final class GUIShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
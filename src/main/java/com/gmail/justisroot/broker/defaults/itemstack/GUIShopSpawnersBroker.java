@@ -22,22 +22,33 @@
  */
 package com.gmail.justisroot.broker.defaults.itemstack;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.logging.Level;
 
 import org.apache.commons.lang.WordUtils;
 import org.bukkit.Material;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.CreatureSpawner;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.EntityType;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.BlockStateMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import com.gmail.justisroot.broker.defaults.ConfigWatcher;
 import com.gmail.justisroot.broker.record.PurchaseRecord;
 import com.gmail.justisroot.broker.record.PurchaseRecord.PurchaseRecordBuilder;
 import com.gmail.justisroot.broker.record.SaleRecord;
@@ -48,82 +59,117 @@ import me.Darrionat.GUIShopSpawners.Maps;
 
 /**
  * Only handles the transaction of spawners.<br>
- * Requires a reload to fetch new prices.
+ * Prices are read again from GUIShopSpawners' config file whenever it changes, and swapped in whole once read.
  */
 public final class GUIShopSpawnersBroker extends ItemBroker {
 
-	private GuiShopSpawners plugin;
-	private Map<String, BigDecimal> buyPrices = new HashMap<>();
-	private Map<String, BigDecimal> sellPrices = new HashMap<>();
+	private volatile Prices prices = new Prices();
+	private Collection<String> paths;
+	private ConfigWatcher.Watch watch;
+	private final Map<ItemFingerprint, Optional<String>> types = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
 
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ItemFingerprint, Optional<String>> eldest) {
+			return size() > CACHED_TYPES;
+		}
+	};
+
+	private static final int CACHED_TYPES = 64;
+	private static final MaterialFilter SPAWNERS = MaterialFilter.of(EnumSet.of(Material.SPAWNER));
 
 	public GUIShopSpawnersBroker() {
 		super("me.Darrionat.GUIShopSpawners.GuiShopSpawners", "me.Darrionat.GUIShopSpawners.Maps");
 		if (!isAvailable()) return;
-		plugin = (GuiShopSpawners) plugin();
-		Collection<String> paths = new Maps().getMobMap().values();
-		BigDecimal disabled = new BigDecimal(-1);
-		for (String path : paths) {
-			ConfigurationSection section = plugin.getConfig().getConfigurationSection(path);
-			String key = path.toUpperCase(Locale.US);
-			if (section == null) continue;
-			if (section.getBoolean("Enabled")) {
-				buyPrices.put(key, new BigDecimal(section.getDouble("Buy")));
-				sellPrices.put(key, new BigDecimal(section.getDouble("Sell")));
-			} else {
-				buyPrices.put(key, disabled);
-				sellPrices.put(key, disabled);
-			}
+		GuiShopSpawners plugin = (GuiShopSpawners) plugin();
+		paths = new ArrayList<>(new Maps().getMobMap().values());
+		prices = new Prices(plugin.getConfig(), paths);
+	}
+
+	@Override
+	public void load() {
+		File config = new File(plugin().getDataFolder(), "config.yml");
+		try {
+			watch = ConfigWatcher.watch(config, () -> reindex(config));
+		} catch (IOException e) {
+			plugin().getLogger().log(Level.WARNING, "Unable to watch " + config + " for price changes", e);
 		}
 	}
 
+	/**
+	 * Read the prices from the config file, keeping the current prices if it can't be read
+	 */
+	private void reindex(File config) {
+		if (!config.isFile()) return;
+		YamlConfiguration yaml = new YamlConfiguration();
+		try {
+			yaml.load(config);
+		} catch (IOException | InvalidConfigurationException e) {
+			plugin().getLogger().log(Level.WARNING, "Unable to read spawner prices from " + config, e);
+			return;
+		}
+		prices = new Prices(yaml, paths);
+		invalidateQuotes();
+	}
+
+	@Override
+	public void unload() {
+		if (watch != null) watch.close();
+		super.unload();
+	}
+
+	@Override
+	protected MaterialFilter materials() {
+		return SPAWNERS;
+	}
+
 	@Override
 	public String getProvider() {
 		return "GUIShopSpawners";
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getBuyPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return buyPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		if (item.getType() != Material.SPAWNER) return Optional.empty();
 		Optional<String> type = spawnerType(item);
 		if (type.isEmpty()) return Optional.empty();
-		BigDecimal value = buyPrices.get(type.get());
+		BigDecimal value = prices.buy.get(type.get());
 		if (value == null || value.doubleValue() <= 0) return Optional.empty();
 		return Optional.of(value);
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		if (item.getType() != Material.SPAWNER) return Optional.empty();
 		Optional<String> type = spawnerType(item);
 		if (type.isEmpty()) return Optional.empty();
-		BigDecimal value = sellPrices.get(type.get());
+		BigDecimal value = prices.sell.get(type.get());
 		if (value == null || value.doubleValue() <= 0) return Optional.empty();
 		return Optional.of(value);
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		PurchaseRecordBuilder<ItemStack> builder = PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getBuyPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = buyPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
 		return builder.setValue(value.get()).buildSuccess();
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> builder = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
 		return builder.setValue(value.get()).buildSuccess();
 	}
@@ -135,29 +181,71 @@ public final class GUIShopSpawnersBroker extends ItemBroker {
 		return WordUtils.capitalize(type.get().replace("_", " ") + "Spawner");
 	}
 
-	private static Optional<String> spawnerType(ItemStack stack) {
-		ItemMeta itemMeta = stack.getItemMeta();
+	/**
+	 * Get the type of mob spawned by the provided spawner.<br>
+	 * Materializing a spawner's block state copies all of its data, so types are cached by the fingerprint of the item they were read from,
+	 * and read from the copy of the item's meta the fingerprint already holds.<br>
+	 * Neither item meta nor block states may be read off the main thread, so this Broker isn't thread safe.
+	 */
+	private Optional<String> spawnerType(ItemStack stack) {
+		if (stack.getType() != Material.SPAWNER) return Optional.empty();
+		ItemFingerprint key = ItemFingerprint.of(stack);
+		Optional<String> type = types.get(key);
+		if (type != null) return type;
+		type = spawnerType(key.meta());
+		types.put(key, type);
+		return type;
+	}
+
+	private static Optional<String> spawnerType(ItemMeta itemMeta) {
 		if (!(itemMeta instanceof BlockStateMeta)) return Optional.empty();
-		BlockStateMeta blockMeta = (BlockStateMeta) itemMeta;
-		if (!(blockMeta.getBlockState() instanceof CreatureSpawner)) return Optional.empty();
-		CreatureSpawner spawner = (CreatureSpawner) blockMeta.getBlockState();
-		return Optional.of(spawner.getSpawnedType().toString());
+		BlockState state = ((BlockStateMeta) itemMeta).getBlockState();
+		if (!(state instanceof CreatureSpawner)) return Optional.empty();
+		EntityType type = ((CreatureSpawner) state).getSpawnedType();
+		return type == null ? Optional.empty() : Optional.of(type.toString());
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		if (item.getType() != Material.SPAWNER) return false;
 		Optional<String> type = spawnerType(item);
 		if (type.isEmpty()) return false;
-		return buyPrices.containsKey(type.get());
+		return prices.buy.containsKey(type.get());
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		if (item.getType() != Material.SPAWNER) return false;
 		Optional<String> type = spawnerType(item);
 		if (type.isEmpty()) return false;
-		return sellPrices.containsKey(type.get());
+		return prices.sell.containsKey(type.get());
+	}
+
+	/**
+	 * The spawner prices read from one version of the config, never modified once read
+	 */
+	private static final class Prices {
+
+		private static final BigDecimal DISABLED = new BigDecimal(-1);
+
+		private final Map<String, BigDecimal> buy = new HashMap<>(), sell = new HashMap<>();
+
+		private Prices() { }
+
+		private Prices(ConfigurationSection config, Collection<String> paths) {
+			for (String path : paths) {
+				ConfigurationSection section = config.getConfigurationSection(path);
+				String key = path.toUpperCase(Locale.US);
+				if (section == null) continue;
+				if (section.getBoolean("Enabled")) {
+					buy.put(key, new BigDecimal(section.getDouble("Buy")));
+					sell.put(key, new BigDecimal(section.getDouble("Sell")));
+				} else {
+					buy.put(key, DISABLED);
+					sell.put(key, DISABLED);
+				}
+			}
+		}
 	}
 
 }
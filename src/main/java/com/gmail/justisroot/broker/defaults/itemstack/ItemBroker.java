@@ -22,7 +22,12 @@
  */
 package com.gmail.justisroot.broker.defaults.itemstack;
 
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
 import org.apache.commons.lang.WordUtils;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import com.gmail.justisroot.broker.defaults.AbstractBroker;
@@ -38,6 +43,86 @@ public abstract class ItemBroker extends AbstractBroker<ItemStack> {
 		return ItemStack.class;
 	}
 
+	/**
+	 * Items are priced regardless of their amount, so quotes are cached under the item's fingerprint
+	 */
+	@Override
+	protected Object cacheKey(ItemStack item) {
+		return ItemFingerprint.of(item);
+	}
+
+	/**
+	 * The item is fingerprinted once for the whole call, however many times this Broker keys or caches by it
+	 */
+	@Override
+	protected final boolean enter(ItemStack item) {
+		return ItemFingerprint.open(item);
+	}
+
+	@Override
+	protected final void exit(boolean entered) {
+		ItemFingerprint.close(entered);
+	}
+
+	/**
+	 * Get the materials this Broker could handle, rebuilt by the Broker whenever its catalog changes.<br>
+	 * Items of any other material are turned away with a single bit check, before any of this Broker's other work.
+	 * @return the materials this Broker could handle, or null if it could handle any
+	 */
+	protected MaterialFilter materials() {
+		return null;
+	}
+
+	@Override
+	protected final boolean rejects(ItemStack item) {
+		MaterialFilter materials = materials();
+		return materials != null && !materials.contains(item.getType());
+	}
+
+	/**
+	 * Quote the sale of every stack in the provided contents at once.<br>
+	 * Similar stacks are merged and priced as one volume, with the player and shop resolved only once for the whole quote.
+	 *
+	 * @param playerID the ID of the selling player, if any
+	 * @param worldID the ID of the world the sale is made in, if any
+	 * @param contents the stacks to quote, null or empty slots are skipped
+	 * @return the price of each slot and their total
+	 */
+	public BulkQuote quoteSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack[] contents) {
+		return new BulkQuote(contents, salePricer(playerID, worldID));
+	}
+
+	/**
+	 * Quote the sale of every stack in the provided inventory at once
+	 * @see #quoteSale(Optional, Optional, ItemStack[])
+	 */
+	public BulkQuote quoteSale(Optional<UUID> playerID, Optional<UUID> worldID, Inventory inventory) {
+		return quoteSale(playerID, worldID, inventory.getContents());
+	}
+
+	/**
+	 * Get the pricer for a bulk sale by the provided player and world.<br>
+	 * Brokers which resolve a player or shop for every quote should resolve them here instead, once per bulk quote.
+	 */
+	protected Pricer salePricer(Optional<UUID> playerID, Optional<UUID> worldID) {
+		return (key, item, amount) -> getSellPrice(playerID, worldID, item, amount);
+	}
+
+	/**
+	 * Prices a volume of a single item within a bulk quote
+	 */
+	@FunctionalInterface
+	protected interface Pricer {
+
+		/**
+		 * @param key the fingerprint of the item
+		 * @param item a single item
+		 * @param amount the volume to price
+		 * @return the price of the volume, or empty if it can't be priced
+		 */
+		Optional<BigDecimal> price(ItemFingerprint key, ItemStack item, int amount);
+	}
+
 	public static String displayName(ItemStack item) {
 		return WordUtils.capitalize(item.getType().toString().replace("_", " "));
 	}
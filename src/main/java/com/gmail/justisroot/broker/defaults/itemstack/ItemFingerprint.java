@@ -0,0 +1,147 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults.itemstack;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * An immutable key identifying items which are priced alike, regardless of their amount.<br>
+ * The item's meta is read and hashed once, so probing a map keyed by fingerprints never walks ItemMeta again
+ * unless two fingerprints share a material and meta hash.<br>
+ * Reading an item's meta copies it, so within a call opened by {@link #open(ItemStack)} the item handled by the call is only fingerprinted once,
+ * and items without meta share a single fingerprint per material.
+ */
+public final class ItemFingerprint {
+
+	private final Material material;
+	private final boolean hasMeta;
+	private final int metaHash;
+	private final ItemMeta meta;
+	private final int hash;
+
+	private static final ItemFingerprint[] PLAIN = new ItemFingerprint[Material.values().length];
+	private static final ThreadLocal<Call> CALL = ThreadLocal.withInitial(Call::new);
+
+	private ItemFingerprint(Material material, ItemMeta meta) {
+		this.material = material;
+		this.hasMeta = meta != null;
+		this.metaHash = hasMeta ? meta.hashCode() : 0;
+		this.meta = meta;
+		this.hash = 31 * material.ordinal() + metaHash;
+	}
+
+	/**
+	 * Get the fingerprint of the provided item
+	 * @param item the item to fingerprint
+	 * @return the item's fingerprint
+	 */
+	public static ItemFingerprint of(ItemStack item) {
+		Call call = CALL.get();
+		if (call.item != item) return make(item);
+		if (call.fingerprint == null) call.fingerprint = make(item);
+		return call.fingerprint;
+	}
+
+	private static ItemFingerprint make(ItemStack item) {
+		Material material = item.getType();
+		if (item.hasItemMeta()) return new ItemFingerprint(material, item.getItemMeta());
+		ItemFingerprint plain = PLAIN[material.ordinal()];
+		if (plain == null) PLAIN[material.ordinal()] = plain = new ItemFingerprint(material, null);
+		return plain;
+	}
+
+	/**
+	 * Open a call handling the provided item on this thread, so that the item is fingerprinted at most once until the call is closed.<br>
+	 * The item mustn't be modified while the call is open. A call opened within another keeps the outer call's item.
+	 * @param item the item handled by the call
+	 * @return true if the call was opened, and so must be closed
+	 */
+	public static boolean open(ItemStack item) {
+		Call call = CALL.get();
+		if (call.item != null) return false;
+		call.item = item;
+		return true;
+	}
+
+	/**
+	 * Close the call opened on this thread, forgetting its item
+	 * @param opened what {@link #open(ItemStack)} returned
+	 */
+	public static void close(boolean opened) {
+		if (!opened) return;
+		Call call = CALL.get();
+		call.item = null;
+		call.fingerprint = null;
+	}
+
+	/**
+	 * Get the material of the fingerprinted item
+	 * @return the item's material
+	 */
+	public Material material() {
+		return material;
+	}
+
+	/**
+	 * Get the copy of the fingerprinted item's meta this fingerprint was made from, which mustn't be modified
+	 * @return the item's meta, or null if it had none
+	 */
+	ItemMeta meta() {
+		return meta;
+	}
+
+	/**
+	 * Check whether the fingerprinted item has any meta
+	 * @return true if the item had meta, false otherwise
+	 */
+	public boolean hasMeta() {
+		return hasMeta;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof ItemFingerprint)) return false;
+		ItemFingerprint other = (ItemFingerprint) obj;
+		if (material != other.material || hasMeta != other.hasMeta || metaHash != other.metaHash) return false;
+		// Only reached by equal items, or by a hash collision
+		return !hasMeta || meta.equals(other.meta);
+	}
+
+	/**
+	 * The item handled by the call open on a thread, and its fingerprint once made
+	 */
+	private static final class Call {
+
+		private ItemStack item;
+		private ItemFingerprint fingerprint;
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults.itemstack;
+
+import org.bukkit.Material;
+
+/**
+ * An immutable set of materials, tested with a single bit check.<br>
+ * Published by Brokers which only handle some materials, so that every other item is turned away before the Broker does any work.
+ */
+public final class MaterialFilter {
+
+	private final long[] bits;
+
+	private MaterialFilter(long[] bits) {
+		this.bits = bits;
+	}
+
+	/**
+	 * Get a filter of the provided materials
+	 * @param materials the materials to let through
+	 * @return the filter
+	 */
+	public static MaterialFilter of(Iterable<Material> materials) {
+		long[] bits = new long[(Material.values().length + 63) >>> 6];
+		for (Material material : materials)
+			bits[material.ordinal() >>> 6] |= 1L << material.ordinal();
+		return new MaterialFilter(bits);
+	}
+
+	/**
+	 * @param material the material to test
+	 * @return true if the material is let through, false otherwise
+	 */
+	public boolean contains(Material material) {
+		return (bits[material.ordinal() >>> 6] & 1L << material.ordinal()) != 0;
+	}
+
+}
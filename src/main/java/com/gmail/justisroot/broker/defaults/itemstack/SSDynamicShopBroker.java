@@ -14,16 +14,30 @@
  */
 package com.gmail.justisroot.broker.defaults.itemstack;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import com.gmail.justisroot.broker.SpigotInitializer;
+import com.gmail.justisroot.broker.defaults.CallContext;
+import com.gmail.justisroot.broker.defaults.ConfigWatcher;
 import com.gmail.justisroot.broker.record.PurchaseRecord;
 import com.gmail.justisroot.broker.record.PurchaseRecord.PurchaseRecordBuilder;
 import com.gmail.justisroot.broker.record.SaleRecord;
@@ -36,153 +50,248 @@ import me.sat7.dynamicshop.utilities.SoundUtil;
 /**
  * Adjusts prices through DynamicShop with every purchase and sale.<br>
  * Works as expected only when items aren't duplicated across shops.<br>
- * Respects tax, shop balance and stock. Ignores delivery fee and shop hours since those depend on transaction method.
+ * Items added to a shop are picked up once DynamicShop reloads or saves its shop data.<br>
+ * Respects tax, shop balance and stock. Ignores delivery fee and shop hours since those depend on transaction method.<br>
+ * Stock and balance changes apply immediately, but are saved to DynamicShop's shop file on the configured interval.
  */
 public final class SSDynamicShopBroker extends ItemBroker {
 
+	private volatile ShopIndex index;
+	private volatile boolean unsaved;
+	private BukkitTask saver;
+	private ConfigWatcher.Watch watch;
+	private File shops;
+	// When this Broker last wrote the shop file itself, so that the watch ignores its own saves
+	private volatile long saved;
+
+	// One instance, so that a batch of trades with no save interval still saves once
+	private final Runnable write = this::write;
+
 	public SSDynamicShopBroker() {
 		super("me.sat7.dynamicshop.DynaShopAPI", "me.sat7.dynamicshop.utilities.ShopUtil", "me.sat7.dynamicshop.utilities.SoundUtil");
 	}
 
+	@Override
+	public void load() {
+		// Saving serializes the shop data DynamicShop mutates on the main thread, so saves stay on the main thread
+		long interval = settings().getLong("save-interval") * 20;
+		if (interval > 0) saver = Bukkit.getScheduler().runTaskTimer(JavaPlugin.getPlugin(SpigotInitializer.class), this::flush, interval, interval);
+		// Built up front so that which items this Broker turns away doesn't depend on whether it has been queried yet
+		index = new ShopIndex(ShopUtil.ccShop.get());
+		// Items added or moved in game are only noticed by the index once DynamicShop saves them
+		shops = new File(plugin().getDataFolder(), "Shop.yml");
+		try {
+			watch = ConfigWatcher.watch(shops, this::changed);
+		} catch (IOException e) {
+			plugin().getLogger().log(Level.WARNING, "Unable to watch " + shops + " for shop changes", e);
+		}
+	}
+
+	@Override
+	public List<String> configurations() {
+		// Shop.yml is rewritten as trades are made and is watched by this Broker instead
+		return List.of();
+	}
+
+	/**
+	 * Rebuild the index on the main thread, where DynamicShop's shop data is safe to read, once the shop file has been changed by anything but this Broker
+	 */
+	private void changed() {
+		if (shops.lastModified() == saved) return;
+		Plugin broker = JavaPlugin.getPlugin(SpigotInitializer.class);
+		if (!broker.isEnabled()) return;
+		Bukkit.getScheduler().runTask(broker, () -> {
+			index = new ShopIndex(ShopUtil.ccShop.get());
+			invalidateQuotes();
+		});
+	}
+
 	@Override
 	public String getProvider() {
 		return "DynamicShop";
 	}
 
-	private static final Map<ItemStack, String> getShopItems() {
-		Map<ItemStack, String> items = new HashMap<>();
-		for (String shop : DynaShopAPI.getShops()) {
-			for (ItemStack stack : DynaShopAPI.getShopItems(shop))
-				items.put(stack, shop);
-		}
-		return items;
+	/**
+	 * Find the shop slot which sells the provided item, rebuilding the index if DynamicShop's shop data has changed since it was built
+	 *
+	 * @param item the item to find the slot of
+	 * @return the slot for the provided item, or null if no shop contains it
+	 */
+	private Slot slot(ItemStack item) {
+		return slot(ItemFingerprint.of(item));
+	}
+
+	private Slot slot(ItemFingerprint key) {
+		ShopIndex current = index();
+		return current.slots.get(key);
+	}
+
+	/**
+	 * Get the index of DynamicShop's current shop data, building it if that data has been reloaded since
+	 */
+	private ShopIndex index() {
+		FileConfiguration data = ShopUtil.ccShop.get();
+		ShopIndex current = index;
+		if (current == null || current.data != data) index = current = new ShopIndex(data);
+		return current;
+	}
+
+	/**
+	 * Only the materials sold in any of DynamicShop's shops
+	 */
+	@Override
+	protected MaterialFilter materials() {
+		return index().materials;
+	}
+
+	@Override
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return buyPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getBuyPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(buyValue(playerID, worldID, item, amount));
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
-		String shop = getShopItems().get(item);
-		if (shop == null) return Optional.empty();
-		int index = ShopUtil.findItemFromShop(shop, item);
-		if (index < 0) return Optional.empty();
-		double value = buyPrice(shop, index, amount);
-		if (value <= 0) return Optional.empty();
-		int stock = stock(shop, item, index);
-		if (stock > 0 && stock <= amount) return Optional.empty();
-		return Optional.of(new BigDecimal(value));
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(sellValue(playerID, worldID, item, amount));
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
-		String shop = getShopItems().get(item);
-		if (shop == null) return Optional.empty();
-		int index = ShopUtil.findItemFromShop(shop, item);
-		if (index < 0) return Optional.empty();
-		double value = sellPrice(shop, index, amount);
-		if (value <= 0) return Optional.empty();
-		int stock = stock(shop, item, index);
-		if (stock > 0 && stock <= amount) return Optional.empty();
-		return Optional.of(new BigDecimal(value));
+	protected double buyValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		Slot slot = slot(item);
+		if (slot == null) return Double.NaN;
+		double value = buyPrice(slot, amount);
+		if (value <= 0) return Double.NaN;
+		int stock = stock(slot);
+		return stock > 0 && stock <= amount ? Double.NaN : value;
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return sellValue(slot(item), amount);
+	}
+
+	private double sellValue(Slot slot, int amount) {
+		if (slot == null) return Double.NaN;
+		double value = sellPrice(slot, amount);
+		if (value <= 0) return Double.NaN;
+		int stock = stock(slot);
+		return stock > 0 && stock <= amount ? Double.NaN : value;
+	}
+
+	/**
+	 * Every stack of an item is priced as one volume against the stock, as selling them one after another would be
+	 */
+	@Override
+	protected Pricer salePricer(Optional<UUID> playerID, Optional<UUID> worldID) {
+		return (key, item, amount) -> decimal(sellValue(slot(key), amount));
+	}
+
+	@Override
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		PurchaseRecordBuilder<ItemStack> record = PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount);
-		String shop = getShopItems().get(item);
-		int index = ShopUtil.findItemFromShop(shop, item);
-		if (shop == null) return record.buildFailure(NO_PERMISSION);
-		double value = buyPrice(shop, index, amount);
+		Slot slot = slot(item);
+		if (slot == null) return record.buildFailure(NO_PERMISSION);
+		double value = buyPrice(slot, amount);
 		if (value <= 0) return record.buildFailure(NO_PERMISSION);
-		int stock = stock(shop, item, index);
+		int stock = stock(slot);
 		if (stock > 0 && stock <= amount) return record.buildFailure(NO_PERMISSION);
-		return record.setValue(new BigDecimal(value)).buildSuccess(() -> {
-			buy(item, amount, shop, index, stock, value);
-			if (playerID.isEmpty()) return;
-			Player player = Bukkit.getPlayer(playerID.get());
+		return record.setValue(new BigDecimal(value)).buildSuccess(timed(() -> {
+			buy(slot, amount, stock, value);
+			Player player = CallContext.of(playerID, worldID).player();
 			if (player != null) SoundUtil.playerSoundEffect(player, "buy");
-		});
+		}));
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> record = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		String shop = getShopItems().get(item);
-		int index = ShopUtil.findItemFromShop(shop, item);
-		if (shop == null) return record.buildFailure(NO_PERMISSION);
-		double value = sellPrice(shop, index, amount);
+		Slot slot = slot(item);
+		if (slot == null) return record.buildFailure(NO_PERMISSION);
+		double value = sellPrice(slot, amount);
 		if (value <= 0) return record.buildFailure(NO_PERMISSION);
-		int stock = stock(shop, item, index);
+		int stock = stock(slot);
 		if (stock > 0 && stock <= amount) return record.buildFailure(NO_PERMISSION);
-		return record.setValue(new BigDecimal(value)).buildSuccess(() -> {
-			sell(item, amount, shop, index, stock, value);
-			if (playerID.isEmpty()) return;
-			Player player = Bukkit.getPlayer(playerID.get());
+		return record.setValue(new BigDecimal(value)).buildSuccess(timed(() -> {
+			sell(slot, amount, stock, value);
+			Player player = CallContext.of(playerID, worldID).player();
 			if (player != null) SoundUtil.playerSoundEffect(player, "sell");
-		});
+		}));
 	}
 
-	private static void buy(ItemStack item, int amount, String shop, int index, int stock, double price) {
-		if (stock > 0) ShopUtil.ccShop.get().set(shop + "." + index + ".stock", stock - amount);
-		if (shopHasBalance(shop)) ShopUtil.addShopBalance(shop, price);
-		ShopUtil.ccShop.save();
+	private void buy(Slot slot, int amount, int stock, double price) {
+		if (stock > 0) ShopUtil.ccShop.get().set(slot.path + "stock", stock - amount);
+		if (shopHasBalance(slot.shop)) ShopUtil.addShopBalance(slot.shop, price);
+		save();
+	}
+
+	private void sell(Slot slot, int amount, int stock, double price) {
+		if (stock > 0) ShopUtil.ccShop.get().set(slot.path + "stock", stock + amount);
+		if (shopHasBalance(slot.shop)) ShopUtil.addShopBalance(slot.shop, -price);
+		save();
 	}
 
-	private static void sell(ItemStack item, int amount, String shop, int index, int stock, double price) {
-		if (stock > 0) ShopUtil.ccShop.get().set(shop + "." + index + ".stock", stock + amount);
-		if (shopHasBalance(shop)) ShopUtil.addShopBalance(shop, -price);
+	private void save() {
+		if (saver == null) defer(write);
+		else unsaved = true;
+	}
+
+	@Override
+	public void flush() {
+		if (!unsaved) return;
+		unsaved = false;
+		write();
+	}
+
+	private void write() {
 		ShopUtil.ccShop.save();
+		if (shops != null) saved = shops.lastModified();
+	}
+
+	@Override
+	public void unload() {
+		if (saver != null) saver.cancel();
+		if (watch != null) watch.close();
+		super.unload();
 	}
 
 	private static boolean shopHasBalance(String shop) {
 		return ShopUtil.ccShop.get().contains(shop + ".Options.Balance");
 	}
 
-	private static int stock(String shopName, ItemStack item, int index) {
-		return ShopUtil.ccShop.get().getInt(shopName + "." + index + ".stock");
+	private static int stock(Slot slot) {
+		return ShopUtil.ccShop.get().getInt(slot.path + "stock");
 	}
 
-	private static double buyPrice(String shop, int index, int amount) {
-		return getPrice(shop, index, amount, false);
+	private static double buyPrice(Slot slot, int amount) {
+		return getPrice(slot, amount, false);
 	}
 
-	private static double sellPrice(String shop, int index, int amount) {
-		return getPrice(shop, index, amount, true);
+	private static double sellPrice(Slot slot, int amount) {
+		return getPrice(slot, amount, true);
 	}
 
 	// Improved performance compared to what's available through DynamicShop's API
-	private static double getPrice(String shop, int index, int amount, boolean sell) {
-		double value = ShopUtil.ccShop.get().getDouble(shop + "." + index + ".value");
-		if (sell && ShopUtil.ccShop.get().contains(shop + "." + index + ".value2"))
-			value = ShopUtil.ccShop.get().getDouble(shop + "." + index + ".value2");
-		double min = ShopUtil.ccShop.get().getDouble(shop + "." + index + ".valueMin");
-		double max = ShopUtil.ccShop.get().getDouble(shop + "." + index + ".valueMax");
-		double median = ShopUtil.ccShop.get().getInt(shop + "." + index + ".median");
-		double stock = ShopUtil.ccShop.get().getInt(shop + "." + index + ".stock");
-		double price = 0;
-		for (int i = 0; i < amount; i++) {
-			if (max != 0 && price > max) {
-				price += max;
-			} else if (min != 0 && price < min) {
-				price += min;
-			} else if (median > 0 && stock > 1) {
-				price += median / stock * value;
-			} else {
-				price += value;
-			}
-			if (sell) stock++;
-			else stock--;
-		}
-		if (sell && !ShopUtil.ccShop.get().contains(shop + "." + index + ".value2"))
-			price -= price / 100D * DynaShopAPI.getTaxRate(shop);
+	private static double getPrice(Slot slot, int amount, boolean sell) {
+		FileConfiguration data = ShopUtil.ccShop.get();
+		double value = data.getDouble(slot.path + "value");
+		boolean fixedSell = sell && data.contains(slot.path + "value2");
+		if (fixedSell) value = data.getDouble(slot.path + "value2");
+		double min = data.getDouble(slot.path + "valueMin");
+		double max = data.getDouble(slot.path + "valueMax");
+		double median = data.getInt(slot.path + "median");
+		int stock = data.getInt(slot.path + "stock");
+		double price = DynamicShopPricing.total(value, min, max, median, stock, amount, sell);
+		if (sell && !fixedSell)
+			price -= price / 100D * DynaShopAPI.getTaxRate(slot.shop);
 		return Math.round(price * 100D) / 100D;
 	}
 
@@ -192,13 +301,53 @@ public final class SSDynamicShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
+	/**
+	 * Maps every item sold by DynamicShop to the shop and index it's found at.<br>
+	 * Built against a specific instance of DynamicShop's shop data, so that a reload of that data is noticed.
+	 * Slots are checked to hold the item they're indexed for as the index is built, so a lookup is a single probe.
+	 */
+	private static final class ShopIndex {
+
+		private final FileConfiguration data;
+		private final Map<ItemFingerprint, Slot> slots = new HashMap<>();
+		private final MaterialFilter materials;
+
+		private ShopIndex(FileConfiguration data) {
+			this.data = data;
+			Set<Material> materials = EnumSet.noneOf(Material.class);
+			for (String shop : DynaShopAPI.getShops()) {
+				for (ItemStack stack : DynaShopAPI.getShopItems(shop)) {
+					int index = ShopUtil.findItemFromShop(shop, stack);
+					if (index < 0) continue;
+					ItemFingerprint key = ItemFingerprint.of(stack);
+					Slot slot = new Slot(shop, index);
+					if (!key.material().name().equals(data.getString(slot.path + "mat")) || !data.contains(slot.path + "value")) continue;
+					slots.put(key, slot);
+					materials.add(key.material());
+				}
+			}
+			this.materials = MaterialFilter.of(materials);
+		}
+	}
+
+	private static final class Slot {
+
+		private final String shop;
+		private final String path;
+
+		private Slot(String shop, int index) {
+			this.shop = shop;
+			this.path = shop + "." + index + ".";
+		}
+	}
+
 }
@@ -23,14 +23,26 @@
 package com.gmail.justisroot.broker.defaults.itemstack;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.java.JavaPlugin;
 
+import com.gmail.justisroot.broker.SpigotInitializer;
+import com.gmail.justisroot.broker.defaults.CallContext;
 import com.gmail.justisroot.broker.record.PurchaseRecord;
 import com.gmail.justisroot.broker.record.PurchaseRecord.PurchaseRecordBuilder;
 import com.gmail.justisroot.broker.record.SaleRecord;
@@ -38,20 +50,33 @@ import com.gmail.justisroot.broker.record.SaleRecord.SaleRecordBuilder;
 
 import net.brcdev.shopgui.ShopGuiPlugin;
 import net.brcdev.shopgui.ShopGuiPlusApi;
+import net.brcdev.shopgui.event.ShopsPostLoadEvent;
 import net.brcdev.shopgui.shop.ShopItem;
 import net.brcdev.shopgui.sound.SoundAction;
 
 /**
- * Respects item permissions, sends configured commands, and plays buy/sell sounds on transaction complete.
+ * Respects item permissions, sends configured commands, and plays buy/sell sounds on transaction complete.<br>
+ * Each player's resolved shop item, prices and permission verdict for an item are cached for the configured time, for quotes only,
+ * and are cleared when the player quits or changes world, or when ShopGUI+ reloads its shops. Purchases and sales always resolve afresh.
  */
-public final class ShopGUIPlusBroker extends ItemBroker {
+public final class ShopGUIPlusBroker extends ItemBroker implements Listener {
+
+	private static final int CACHED_QUOTES = 256;
 
 	private ShopGuiPlugin plugin;
+	private long ttl;
+	private final Map<UUID, Map<ItemFingerprint, Quote>> quotes = new HashMap<>();
 
 	public ShopGUIPlusBroker() {
-		super("net.brcdev.shopgui.ShopGuiPlusApi", "net.brcdev.shopgui.ShopGuiPlugin", "net.brcdev.shopgui.shop.ShopItem", "net.brcdev.shopgui.sound.SoundAction");
+		super("net.brcdev.shopgui.ShopGuiPlusApi", "net.brcdev.shopgui.ShopGuiPlugin", "net.brcdev.shopgui.shop.ShopItem", "net.brcdev.shopgui.sound.SoundAction", "net.brcdev.shopgui.event.ShopsPostLoadEvent");
 		if (!isAvailable()) return;
 		plugin = (ShopGuiPlugin) plugin();
+		ttl = TimeUnit.MILLISECONDS.toNanos(settings().getLong("cache-ttl"));
+	}
+
+	@Override
+	public void load() {
+		if (ttl > 0) Bukkit.getPluginManager().registerEvents(this, JavaPlugin.getPlugin(SpigotInitializer.class));
 	}
 
 	@Override
@@ -60,66 +85,146 @@ public final class ShopGUIPlusBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getBuyPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return buyPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
-		if (playerID.isEmpty()) return Optional.empty();
-		Player player = Bukkit.getPlayer(playerID.get());
-		if (player == null) return Optional.empty();
-		double value = ShopGuiPlusApi.getItemStackPriceBuy(player, item);
-		if (value <= 0) return Optional.empty();
-		ShopItem shopItem = ShopGuiPlusApi.getItemStackShopItem(player, item);
-		if (!shopItem.hasRequiredPermissions(player)) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(buyValue(playerID, worldID, item, amount));
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
-		if (playerID.isEmpty()) return Optional.empty();
-		Player player = Bukkit.getPlayer(playerID.get());
-		if (player == null) return Optional.empty();
-		double value = ShopGuiPlusApi.getItemStackPriceSell(player, item);
-		if (value <= 0) return Optional.empty();
-		ShopItem shopItem = ShopGuiPlusApi.getItemStackShopItem(player, item);
-		if (!shopItem.hasRequiredPermissions(player)) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(sellValue(playerID, worldID, item, amount));
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected double buyValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		Player player = CallContext.of(playerID, worldID).player();
+		if (player == null) return Double.NaN;
+		return buyValue(player, quote(player, item), item, amount);
+	}
+
+	@Override
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		Player player = CallContext.of(playerID, worldID).player();
+		if (player == null) return Double.NaN;
+		return sellValue(player, quote(player, item), item, amount);
+	}
+
+	/**
+	 * The player is looked up once for every stack
+	 */
+	@Override
+	protected Pricer salePricer(Optional<UUID> playerID, Optional<UUID> worldID) {
+		Player player = CallContext.of(playerID, worldID).player();
+		if (player == null) return (key, item, amount) -> Optional.empty();
+		return (key, item, amount) -> decimal(sellValue(player, quote(player, key, item), item, amount));
+	}
+
+	private static double buyValue(Player player, Quote quote, ItemStack item, int amount) {
+		double value = quote.buyPrice(player, item);
+		if (value <= 0 || !quote.permitted(player, item)) return Double.NaN;
+		return value * amount;
+	}
+
+	private static double sellValue(Player player, Quote quote, ItemStack item, int amount) {
+		double value = quote.sellPrice(player, item);
+		if (value <= 0 || !quote.permitted(player, item)) return Double.NaN;
+		return value * amount;
+	}
+
+	@Override
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		PurchaseRecordBuilder<ItemStack> builder = PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getBuyPrice(playerID, worldID, item, amount);
+		Player player = CallContext.of(playerID, worldID).player();
+		if (player == null) return builder.buildFailure(NO_PERMISSION);
+		Quote quote = fresh(item);
+		Optional<BigDecimal> value = decimal(buyValue(player, quote, item, amount));
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
-		Player player = Bukkit.getPlayer(playerID.get());
-		ShopItem shopItem = ShopGuiPlusApi.getItemStackShopItem(player, item);
-		return builder.setValue(value.get()).buildSuccess(() -> {
+		ShopItem shopItem = quote.shopItem(player, item);
+		return builder.setValue(value.get()).buildSuccess(timed(() -> {
 			plugin.getSoundManager().playSound(player, SoundAction.BUY_ITEM);
 			for (String command : shopItem.getCommandsOnBuyConsole()) sendCommand(Bukkit.getConsoleSender(), command, player, amount);
 			for (String command : shopItem.getCommandsOnBuy()) sendCommand(player, command, player, amount);
-		});
+		}));
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> builder = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Player player = CallContext.of(playerID, worldID).player();
+		if (player == null) return builder.buildFailure(NO_PERMISSION);
+		Quote quote = fresh(item);
+		Optional<BigDecimal> value = decimal(sellValue(player, quote, item, amount));
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
-		Player player = Bukkit.getPlayer(playerID.get());
-		ShopItem shopItem = ShopGuiPlusApi.getItemStackShopItem(player, item);
-		if (!shopItem.hasRequiredPermissions(player)) return builder.buildFailure(NO_PERMISSION);
-		return builder.setValue(value.get()).buildSuccess(() -> {
+		ShopItem shopItem = quote.shopItem(player, item);
+		return builder.setValue(value.get()).buildSuccess(timed(() -> {
 			plugin.getSoundManager().playSound(player, SoundAction.SELL_ITEM);
 			for (String command : shopItem.getCommandsOnSellConsole()) sendCommand(Bukkit.getConsoleSender(), command, player, amount);
 			for (String command : shopItem.getCommandsOnSell()) sendCommand(player, command, player, amount);
+		}));
+	}
+
+	/**
+	 * Get the provided player's quote for the provided item, reusing a cached quote that hasn't yet expired.<br>
+	 * ShopGUI+ prices a stack by its amount, so a quote is only reused for a stack of the same amount.
+	 */
+	private Quote quote(Player player, ItemStack item) {
+		return quote(player, ItemFingerprint.of(item), item);
+	}
+
+	private Quote quote(Player player, ItemFingerprint key, ItemStack item) {
+		if (ttl <= 0) return fresh(item);
+		long now = System.nanoTime();
+		Map<ItemFingerprint, Quote> cached = quotes.computeIfAbsent(player.getUniqueId(), id -> new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ItemFingerprint, Quote> eldest) {
+				return size() > CACHED_QUOTES;
+			}
 		});
+		Quote quote = cached.get(key);
+		if (quote != null && quote.amount == item.getAmount() && now - quote.expires < 0) return quote;
+		quote = new Quote(now + ttl, item.getAmount());
+		cached.put(key, quote);
+		return quote;
+	}
+
+	/**
+	 * Get a quote which resolves everything anew, for transactions which mustn't be decided by a cached price or permission
+	 */
+	private static Quote fresh(ItemStack item) {
+		return new Quote(0, item.getAmount());
+	}
+
+	@EventHandler
+	public void onQuit(PlayerQuitEvent event) {
+		quotes.remove(event.getPlayer().getUniqueId());
+	}
+
+	@EventHandler
+	public void onWorldChange(PlayerChangedWorldEvent event) {
+		quotes.remove(event.getPlayer().getUniqueId());
+	}
+
+	@EventHandler
+	public void onShopsLoad(ShopsPostLoadEvent event) {
+		quotes.clear();
+	}
+
+	@Override
+	public void unload() {
+		HandlerList.unregisterAll(this);
+		quotes.clear();
+		super.unload();
 	}
 
 	private static void sendCommand(CommandSender sender, String command, Player player, double amount) {
@@ -132,13 +237,51 @@ public final class ShopGUIPlusBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
+	/**
+	 * What ShopGUI+ has resolved for a player and item, each part resolved only once it's first needed.<br>
+	 * Permission changes aren't announced by Bukkit, so they apply once the quote expires.
+	 */
+	private static final class Quote {
+
+		private final long expires;
+		private final int amount;
+		private double buyPrice = Double.NaN, sellPrice = Double.NaN;
+		private ShopItem shopItem;
+		private Boolean permitted;
+
+		private Quote(long expires, int amount) {
+			this.expires = expires;
+			this.amount = amount;
+		}
+
+		private double buyPrice(Player player, ItemStack item) {
+			if (Double.isNaN(buyPrice)) buyPrice = ShopGuiPlusApi.getItemStackPriceBuy(player, item);
+			return buyPrice;
+		}
+
+		private double sellPrice(Player player, ItemStack item) {
+			if (Double.isNaN(sellPrice)) sellPrice = ShopGuiPlusApi.getItemStackPriceSell(player, item);
+			return sellPrice;
+		}
+
+		private ShopItem shopItem(Player player, ItemStack item) {
+			if (shopItem == null) shopItem = ShopGuiPlusApi.getItemStackShopItem(player, item);
+			return shopItem;
+		}
+
+		private boolean permitted(Player player, ItemStack item) {
+			if (permitted == null) permitted = shopItem(player, item).hasRequiredPermissions(player);
+			return permitted;
+		}
+	}
+
 }
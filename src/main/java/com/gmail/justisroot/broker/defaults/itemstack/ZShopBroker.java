@@ -27,9 +27,11 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.RegisteredServiceProvider;
 
+import com.gmail.justisroot.broker.defaults.CallContext;
 import com.gmail.justisroot.broker.record.PurchaseRecord;
 import com.gmail.justisroot.broker.record.PurchaseRecord.PurchaseRecordBuilder;
 import com.gmail.justisroot.broker.record.SaleRecord;
@@ -59,63 +61,65 @@ public class ZShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getBuyPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return buyPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
-		return getSellPrice(playerID, worldID, item, 1).isPresent();
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+		return sellPrice(playerID, worldID, item, 1).isPresent();
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(buyValue(playerID, worldID, item, amount));
+	}
+
+	@Override
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+		return decimal(sellValue(playerID, worldID, item, amount));
+	}
+
+	@Override
+	protected double buyValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		Optional<ItemButton> button = iv.getItemButton(item);
-		if (button.isEmpty()) return Optional.empty();
-		if (!button.get().canBuy()) return Optional.empty();
-		double value;
-		if (playerID.isPresent() && Bukkit.getPlayer(playerID.get()) != null)
-			value = button.get().getBuyPrice(Bukkit.getPlayer(playerID.get()));
-		else value = button.get().getBuyPrice();
-		if (value <= 0) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+		if (button.isEmpty() || !button.get().canBuy()) return Double.NaN;
+		Player player = CallContext.of(playerID, worldID).player();
+		double value = player != null ? button.get().getBuyPrice(player) : button.get().getBuyPrice();
+		return value <= 0 ? Double.NaN : value * amount;
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected double sellValue(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		Optional<ItemButton> button = iv.getItemButton(item);
-		if (button.isEmpty()) return Optional.empty();
-		if (!button.get().canSell()) return Optional.empty();
-		double value;
-		if (playerID.isPresent() && Bukkit.getPlayer(playerID.get()) != null)
-			value = button.get().getSellPrice(Bukkit.getPlayer(playerID.get()));
-		else value = button.get().getSellPrice();
-		if (value <= 0) return Optional.empty();
-		return Optional.of(new BigDecimal(value * amount));
+		if (button.isEmpty() || !button.get().canSell()) return Double.NaN;
+		Player player = CallContext.of(playerID, worldID).player();
+		double value = player != null ? button.get().getSellPrice(player) : button.get().getSellPrice();
+		return value <= 0 ? Double.NaN : value * amount;
 	}
 
 	@Override
-	public PurchaseRecord<ItemStack> buy(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected PurchaseRecord<ItemStack> purchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		PurchaseRecordBuilder<ItemStack> builder = PurchaseRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getBuyPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = buyPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
-		return builder.setValue(value.get()).buildSuccess(() -> {
+		return builder.setValue(value.get()).buildSuccess(timed(() -> {
 			Optional<ItemButton> button = iv.getItemButton(item);
-			if (playerID.isEmpty() || Bukkit.getPlayer(playerID.get()) == null) return;
-			button.get().playSound(Bukkit.getPlayer(playerID.get()));
-		});
+			Player player = CallContext.of(playerID, worldID).player();
+			if (player != null) button.get().playSound(player);
+		}));
 	}
 
 	@Override
-	public SaleRecord<ItemStack> sell(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
+	protected SaleRecord<ItemStack> sale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item, int amount) {
 		SaleRecordBuilder<ItemStack> builder = SaleRecord.start(this, item, playerID, worldID).setVolume(amount);
-		Optional<BigDecimal> value = getSellPrice(playerID, worldID, item, amount);
+		Optional<BigDecimal> value = sellPrice(playerID, worldID, item, amount);
 		if (value.isEmpty()) return builder.buildFailure(NO_PERMISSION);
-		return builder.setValue(value.get()).buildSuccess(() -> {
+		return builder.setValue(value.get()).buildSuccess(timed(() -> {
 			Optional<ItemButton> button = iv.getItemButton(item);
-			if (playerID.isEmpty() || Bukkit.getPlayer(playerID.get()) == null) return;
-			button.get().playSound(Bukkit.getPlayer(playerID.get()));
-		});
+			Player player = CallContext.of(playerID, worldID).player();
+			if (player != null) button.get().playSound(player);
+		}));
 	}
 
 	@Override
@@ -124,12 +128,12 @@ public class ZShopBroker extends ItemBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, ItemStack item) {
 		return true;
 	}
 
@@ -22,95 +22,161 @@
  */
 package com.gmail.justisroot.broker.defaults.permission;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.logging.Level;
 
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.permissions.Permission;
 
+import com.gmail.justisroot.broker.defaults.ConfigWatcher;
 import com.gmail.justisroot.broker.record.PurchaseRecord;
 import com.gmail.justisroot.broker.record.PurchaseRecord.PurchaseRecordBuilder;
 import com.gmail.justisroot.broker.record.SaleRecord;
 
 import me.glaremasters.buypermissions.BuyPermissions;
 
+/**
+ * Prices are read again from BuyPermissions' config file whenever it changes, and swapped in whole once read.
+ */
 public final class BuyPermissionsBroker extends PermissionBroker {
 
-	private Map<String, BigDecimal> permissions = new HashMap<>();
-	private Map<String, String> names = new HashMap<>();
+	private volatile Catalog catalog = new Catalog();
+	private ConfigWatcher.Watch watch;
 
 	public BuyPermissionsBroker() {
 		super("me.glaremasters.buypermissions.BuyPermissions");
 		if (!isAvailable()) return;
 		BuyPermissions plugin = (BuyPermissions) plugin();
-		ConfigurationSection config = plugin.getConfig().getConfigurationSection("permissions.commands");
-		for (String name : plugin.getConfig().getStringList("currently-selling")) {
-			name = name.toLowerCase(Locale.US);
-			String node = config.getString(name + ".perm");
-			String cost = config.getString(name + ".cost");
-			if (node == null || cost == null) continue;
-			names.put(node, name);
-			permissions.put(node, new BigDecimal(cost));
+		catalog = new Catalog(plugin.getConfig());
+	}
+
+	@Override
+	public void load() {
+		File config = new File(plugin().getDataFolder(), "config.yml");
+		try {
+			watch = ConfigWatcher.watch(config, () -> reindex(config));
+		} catch (IOException e) {
+			plugin().getLogger().log(Level.WARNING, "Unable to watch " + config + " for price changes", e);
 		}
 	}
 
+	/**
+	 * Read the permissions on sale from the config file, keeping the current ones if it can't be read
+	 */
+	private void reindex(File config) {
+		if (!config.isFile()) return;
+		YamlConfiguration yaml = new YamlConfiguration();
+		try {
+			yaml.load(config);
+		} catch (IOException | InvalidConfigurationException e) {
+			plugin().getLogger().log(Level.WARNING, "Unable to read permission prices from " + config, e);
+			return;
+		}
+		catalog = new Catalog(yaml);
+		invalidateQuotes();
+	}
+
+	@Override
+	public void unload() {
+		if (watch != null) watch.close();
+		super.unload();
+	}
+
+	/**
+	 * Prices are read from an immutable snapshot
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public String getProvider() {
 		return "BuyPermissions";
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
-		return permissions.containsKey(permission.getName()) && permissions.get(permission.getName()).doubleValue() > 0;
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+		BigDecimal price = catalog.permissions.get(permission.getName());
+		return price != null && price.doubleValue() > 0;
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
 		return false;
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
-		return Optional.ofNullable(permissions.get(permission.getName()));
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+		return Optional.ofNullable(catalog.permissions.get(permission.getName()));
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		return Optional.empty();
 	}
 
 	@Override
-	public PurchaseRecord<Permission> buy(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected PurchaseRecord<Permission> purchase(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		PurchaseRecordBuilder<Permission> record = PurchaseRecord.start(this, permission, playerID, worldID).setVolume(amount);
-		if (!canBeSold(playerID, worldID, permission)) return record.buildFailure(NO_PERMISSION);
-		Optional<BigDecimal> buyPrice = getBuyPrice(playerID, worldID, permission, amount);
-		if (buyPrice.isEmpty()) return record.buildFailure(NO_PERMISSION);
-		return record.setValue(buyPrice.get()).buildSuccess(null);
+		if (!sellable(playerID, worldID, permission)) return record.buildFailure(NO_PERMISSION);
+		Optional<BigDecimal> value = buyPrice(playerID, worldID, permission, amount);
+		if (value.isEmpty()) return record.buildFailure(NO_PERMISSION);
+		return record.setValue(value.get()).buildSuccess(null);
 	}
 
 	@Override
-	public SaleRecord<Permission> sell(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected SaleRecord<Permission> sale(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		return SaleRecord.start(this, permission, playerID, worldID).setVolume(amount).buildFailure(NO_PERMISSION);
 	}
 
 	@Override
 	public String getDisplayName(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
-		String name = names.get(permission.getName());
+		String name = catalog.names.get(permission.getName());
 		return name == null ? permission.getName() : name;
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
-		return permissions.containsKey(permission.getName());
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+		return catalog.permissions.containsKey(permission.getName());
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
 		return false;
 	}
 
+	/**
+	 * The permissions on sale in one version of the config, never modified once read
+	 */
+	private static final class Catalog {
+
+		private final Map<String, BigDecimal> permissions = new HashMap<>();
+		private final Map<String, String> names = new HashMap<>();
+
+		private Catalog() { }
+
+		private Catalog(ConfigurationSection root) {
+			ConfigurationSection config = root.getConfigurationSection("permissions.commands");
+			if (config == null) return;
+			for (String name : root.getStringList("currently-selling")) {
+				name = name.toLowerCase(Locale.US);
+				String node = config.getString(name + ".perm");
+				String cost = config.getString(name + ".cost");
+				if (node == null || cost == null) continue;
+				names.put(node, name);
+				permissions.put(node, new BigDecimal(cost));
+			}
+		}
+	}
+
 }
@@ -37,4 +37,12 @@ public abstract class PermissionBroker extends AbstractBroker<Permission> {
 		return Permission.class;
 	}
 
+	/**
+	 * Permissions are priced by name, so quotes are cached under the name rather than the Permission instance
+	 */
+	@Override
+	protected Object cacheKey(Permission permission) {
+		return permission.getName();
+	}
+
 }
@@ -38,32 +38,32 @@ public final class PermissionShopZBroker extends PermissionBroker {
 	}
 
 	@Override
-	public boolean canBeBought(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+	protected boolean buyable(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
 		return false;
 	}
 
 	@Override
-	public boolean canBeSold(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+	protected boolean sellable(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
 		return false;
 	}
 
 	@Override
-	public Optional<BigDecimal> getBuyPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected Optional<BigDecimal> buyPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		return Optional.empty();
 	}
 
 	@Override
-	public Optional<BigDecimal> getSellPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected Optional<BigDecimal> sellPrice(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		return Optional.empty();
 	}
 
 	@Override
-	public PurchaseRecord<Permission> buy(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected PurchaseRecord<Permission> purchase(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		return PurchaseRecord.start(this, permission, playerID, worldID).setVolume(amount).buildFailure(NO_PERMISSION);
 	}
 
 	@Override
-	public SaleRecord<Permission> sell(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
+	protected SaleRecord<Permission> sale(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission, int amount) {
 		return SaleRecord.start(this, permission, playerID, worldID).setVolume(amount).buildFailure(NO_PERMISSION);
 	}
 
@@ -73,12 +73,12 @@ public final class PermissionShopZBroker extends PermissionBroker {
 	}
 
 	@Override
-	public boolean handlesPurchases(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+	protected boolean handlesPurchase(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
 		return false;
 	}
 
 	@Override
-	public boolean handlesSales(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
+	protected boolean handlesSale(Optional<UUID> playerID, Optional<UUID> worldID, Permission permission) {
 		return false;
 	}
 
@@ -22,30 +22,138 @@
  */
 package com.gmail.justisroot.broker.events;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.bukkit.Bukkit;
+import org.bukkit.event.HandlerList;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.PluginManager;
 
+import com.gmail.justisroot.broker.defaults.QuoteCache;
+import com.gmail.justisroot.broker.defaults.itemstack.ItemFingerprint;
+import com.gmail.justisroot.broker.journal.TradeJournal;
+
 public final class EventCreator {
 
 	private EventCreator() { }
 
+	private static final ThreadLocal<Boolean> BATCHING = ThreadLocal.withInitial(() -> false);
+
+	private static final TradeTally TALLY = new TradeTally();
+
+	private static final LongAdder SKIPPED_PURCHASES = new LongAdder(), SKIPPED_SALES = new LongAdder();
+	private static final LongAdder SKIPPED_PURCHASE_PRE_PROCESSES = new LongAdder(), SKIPPED_SALE_PRE_PROCESSES = new LongAdder();
+
 	public static final void registerEvents() {
 		PluginManager pm = Bukkit.getPluginManager();
 		BrokerEventService service = BrokerEventService.current();
 		service.setRegistrationHandler(info -> pm.callEvent(new BrokerRegistrationEvent(info)));
 		service.setUnregistrationHandler(info -> pm.callEvent(new BrokerUnregistrationEvent(info)));
-		service.setPurchaseHandler((info, record) -> pm.callEvent(new PurchaseEvent(info, record)));
-		service.setSaleHandler((info, record) -> pm.callEvent(new SaleEvent(info, record)));
+		service.setPurchaseHandler((info, record) -> {
+			boolean opened = open(record.object());
+			try {
+				QuoteCache.invalidate(info.id(), record.object());
+				if (TradeFeed.hasSubscribers()) TradeFeed.publish(info, false, record.object(), record.playerID(), record.worldID(), record.volume(), record.value().doubleValue());
+				TradeJournal journal = TradeJournal.current();
+				if (journal != null) journal.append(info, false, record.object(), record.playerID(), record.worldID(), record.volume(), record.value());
+				if (TradeSummaryEvent.getHandlerList().getRegisteredListeners().length > 0) TALLY.add(info.id(), false, record.object(), record.playerID(), record.volume(), record.value());
+			} finally {
+				ItemFingerprint.close(opened);
+			}
+			if (BATCHING.get()) return;
+			if (!listened(PurchaseEvent.getHandlerList(), SKIPPED_PURCHASES)) return;
+			pm.callEvent(new PurchaseEvent(info, record));
+		});
+		service.setSaleHandler((info, record) -> {
+			boolean opened = open(record.object());
+			try {
+				QuoteCache.invalidate(info.id(), record.object());
+				if (TradeFeed.hasSubscribers()) TradeFeed.publish(info, true, record.object(), record.playerID(), record.worldID(), record.volume(), record.value().doubleValue());
+				TradeJournal journal = TradeJournal.current();
+				if (journal != null) journal.append(info, true, record.object(), record.playerID(), record.worldID(), record.volume(), record.value());
+				if (TradeSummaryEvent.getHandlerList().getRegisteredListeners().length > 0) TALLY.add(info.id(), true, record.object(), record.playerID(), record.volume(), record.value());
+			} finally {
+				ItemFingerprint.close(opened);
+			}
+			if (BATCHING.get()) return;
+			if (!listened(SaleEvent.getHandlerList(), SKIPPED_SALES)) return;
+			pm.callEvent(new SaleEvent(info, record));
+		});
+		// Pre-processing is never batched, since a listener may need to cancel any one trade on its own
 		service.setSalePreProcessHandler((info, record) -> {
+			if (!listened(SalePreProcessEvent.getHandlerList(), SKIPPED_SALE_PRE_PROCESSES)) return false;
 			SalePreProcessEvent event = new SalePreProcessEvent(info, record);
 			pm.callEvent(event);
 			return event.isCancelled();
 		});
 		service.setPurchasePreProcessHandler((info, record) -> {
+			if (!listened(PurchasePreProcessEvent.getHandlerList(), SKIPPED_PURCHASE_PRE_PROCESSES)) return false;
 			PurchasePreProcessEvent event = new PurchasePreProcessEvent(info, record);
 			pm.callEvent(event);
 			return event.isCancelled();
 		});
 	}
 
+	/**
+	 * Fingerprint a traded item only once, for the quote cache, the feed and the tally alike
+	 */
+	private static boolean open(Object object) {
+		return object instanceof ItemStack && ItemFingerprint.open((ItemStack) object);
+	}
+
+	/**
+	 * Fire a {@link TradeSummaryEvent} for the trades completed since the last call, if there were any. Called once per tick.
+	 */
+	public static void summarize() {
+		List<TradeSummary> summaries = TALLY.drain();
+		if (summaries.isEmpty()) return;
+		Bukkit.getPluginManager().callEvent(new TradeSummaryEvent(summaries));
+	}
+
+	/**
+	 * Check if anything listens to the event of the provided HandlerList, counting the dispatch as skipped if not.<br>
+	 * A HandlerList caches its baked listeners and drops them whenever its membership changes, so this is only an array read.
+	 */
+	private static boolean listened(HandlerList handlers, LongAdder skipped) {
+		if (handlers.getRegisteredListeners().length > 0) return true;
+		skipped.increment();
+		return false;
+	}
+
+	/**
+	 * Get how many dispatches of each transaction event have been skipped since enabling, because nothing was listening
+	 * @return an unmodifiable map of each event's name to its number of skipped dispatches
+	 */
+	public static Map<String, Long> skipped() {
+		Map<String, Long> skipped = new LinkedHashMap<>();
+		skipped.put(PurchasePreProcessEvent.class.getSimpleName(), SKIPPED_PURCHASE_PRE_PROCESSES.sum());
+		skipped.put(PurchaseEvent.class.getSimpleName(), SKIPPED_PURCHASES.sum());
+		skipped.put(SalePreProcessEvent.class.getSimpleName(), SKIPPED_SALE_PRE_PROCESSES.sum());
+		skipped.put(SaleEvent.class.getSimpleName(), SKIPPED_SALES.sum());
+		return Collections.unmodifiableMap(skipped);
+	}
+
+	/**
+	 * Run the provided task without firing the {@link PurchaseEvent} or {@link SaleEvent} of any trade it completes on this thread,
+	 * so that the caller may fire a single aggregated event for all of them instead.<br>
+	 * Pre-process events are still fired for every trade which has listeners, so that none can be made without its chance to be cancelled.
+	 * @param task the task making the trades
+	 */
+	public static void batch(Runnable task) {
+		if (BATCHING.get()) {
+			task.run();
+			return;
+		}
+		BATCHING.set(true);
+		try {
+			task.run();
+		} finally {
+			BATCHING.remove();
+		}
+	}
+
 }
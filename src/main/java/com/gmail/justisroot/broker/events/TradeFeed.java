@@ -0,0 +1,326 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.events;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.bukkit.inventory.ItemStack;
+
+import com.gmail.justisroot.broker.BrokerInfo;
+import com.gmail.justisroot.broker.defaults.itemstack.ItemFingerprint;
+
+/**
+ * A bounded, lock-free ring of completed trades, for consumers which would rather read trades on their own threads than listen to events.<br>
+ * Publishing a trade claims and fills a single slot. Each subscriber reads from its own cursor in batches,
+ * and a slot rewritten while being read is detected and treated as lapped.
+ */
+public final class TradeFeed {
+
+	private TradeFeed() { }
+
+	/**
+	 * What happens when a subscriber falls a whole ring behind the trades being published
+	 */
+	public enum Policy {
+		/**
+		 * The trades which were overwritten are skipped, and reading resumes at the oldest trade still held
+		 */
+		DROP,
+		/**
+		 * Publishing waits for this subscriber to read, so no trade is ever skipped. Only for subscribers which always keep up.<br>
+		 * A subscriber which keeps publishing waiting too long is treated as {@link #DROP} from then on, and reports that it {@link Subscription#overflowed()}.
+		 */
+		BLOCK,
+		/**
+		 * Every trade still held is skipped too, and reading resumes at the newest trade
+		 */
+		SAMPLE
+	}
+
+	private static final int CAPACITY = 1 << 13, MASK = CAPACITY - 1;
+	private static final long WRITING = -1;
+	// The longest publishing waits for a blocking subscriber, as publishing is usually done on the main thread
+	private static final long BLOCK_LIMIT = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private static final AtomicLong CURSOR = new AtomicLong();
+	private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+
+	private static final String[] BROKERS = new String[CAPACITY];
+	private static final Object[] OBJECTS = new Object[CAPACITY];
+	private static final boolean[] SALES = new boolean[CAPACITY];
+	private static final long[] TIMES = new long[CAPACITY];
+	private static final long[] PLAYERS = new long[CAPACITY * 2], WORLDS = new long[CAPACITY * 2];
+	private static final int[] VOLUMES = new int[CAPACITY];
+	private static final double[] VALUES = new double[CAPACITY];
+
+	private static volatile Subscription[] subscriptions = new Subscription[0];
+
+	static {
+		for (int i = 0; i < CAPACITY; i++)
+			SEQUENCES.set(i, i - CAPACITY);
+	}
+
+	/**
+	 * Subscribe to every trade completed from now on
+	 * @param policy what happens if the subscription falls a whole ring behind
+	 * @return the new subscription, which should be closed once no longer read
+	 */
+	public static synchronized Subscription subscribe(Policy policy) {
+		Subscription subscription = new Subscription(policy, CURSOR.get());
+		Subscription[] current = subscriptions;
+		Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = subscription;
+		subscriptions = updated;
+		return subscription;
+	}
+
+	private static synchronized void unsubscribe(Subscription subscription) {
+		subscriptions = Arrays.stream(subscriptions).filter(s -> s != subscription).toArray(Subscription[]::new);
+	}
+
+	static boolean hasSubscribers() {
+		return subscriptions.length > 0;
+	}
+
+	/**
+	 * Publish a completed trade to every subscription
+	 */
+	static void publish(BrokerInfo info, boolean sale, Object object, Optional<UUID> playerID, Optional<UUID> worldID, int volume, double value) {
+		Subscription[] current = subscriptions;
+		if (current.length == 0) return;
+		long sequence = CURSOR.getAndIncrement();
+		for (Subscription subscription : current)
+			if (subscription.policy == Policy.BLOCK && !subscription.overflowed) subscription.await(sequence);
+		int slot = (int) (sequence & MASK);
+		SEQUENCES.set(slot, WRITING);
+		// Readers must never see the new contents of the slot while it still holds the old sequence
+		VarHandle.storeStoreFence();
+		BROKERS[slot] = info.id();
+		// Items are mutable and may be reused by the caller after the trade, so only their fingerprint is held
+		OBJECTS[slot] = object instanceof ItemStack ? ItemFingerprint.of((ItemStack) object) : object;
+		SALES[slot] = sale;
+		TIMES[slot] = System.currentTimeMillis();
+		PLAYERS[slot * 2] = playerID.isPresent() ? playerID.get().getMostSignificantBits() : 0;
+		PLAYERS[slot * 2 + 1] = playerID.isPresent() ? playerID.get().getLeastSignificantBits() : 0;
+		WORLDS[slot * 2] = worldID.isPresent() ? worldID.get().getMostSignificantBits() : 0;
+		WORLDS[slot * 2 + 1] = worldID.isPresent() ? worldID.get().getLeastSignificantBits() : 0;
+		VOLUMES[slot] = volume;
+		VALUES[slot] = value;
+		SEQUENCES.lazySet(slot, sequence);
+	}
+
+	/**
+	 * A single reader of the feed, with its own position. Read it from one thread at a time.
+	 */
+	public static final class Subscription implements AutoCloseable {
+
+		private final Policy policy;
+		private final AtomicLong next;
+		// Only written by the reading thread, but read by anyone reporting on the subscription
+		private volatile long dropped;
+		private volatile boolean closed, overflowed;
+
+		private Subscription(Policy policy, long next) {
+			this.policy = policy;
+			this.next = new AtomicLong(next);
+		}
+
+		public Policy policy() {
+			return policy;
+		}
+
+		/**
+		 * Read up to the provided number of trades, oldest first
+		 * @param consumer accepts each trade read
+		 * @param max the most trades to read
+		 * @return the number of trades read, 0 if none have been published since the last read
+		 */
+		public int poll(Consumer<Trade> consumer, int max) {
+			int read = 0;
+			long sequence = next.get();
+			while (read < max && !closed) {
+				int slot = (int) (sequence & MASK);
+				long published = SEQUENCES.get(slot);
+				if (published < sequence) break;
+				if (published == sequence) {
+					Trade trade = read(slot, sequence);
+					VarHandle.loadLoadFence();
+					if (SEQUENCES.get(slot) == sequence) {
+						consumer.accept(trade);
+						next.lazySet(++sequence);
+						read++;
+						continue;
+					}
+				}
+				sequence = lapped(sequence);
+			}
+			return read;
+		}
+
+		/**
+		 * Move past every trade which was overwritten before it could be read
+		 */
+		private long lapped(long sequence) {
+			long claimed = CURSOR.get();
+			long resume = policy == Policy.SAMPLE ? claimed - 1 : claimed - CAPACITY + 1;
+			resume = Math.max(resume, sequence + 1);
+			dropped += resume - sequence;
+			next.lazySet(resume);
+			return resume;
+		}
+
+		private static Trade read(int slot, long sequence) {
+			UUID player = PLAYERS[slot * 2] == 0 && PLAYERS[slot * 2 + 1] == 0 ? null : new UUID(PLAYERS[slot * 2], PLAYERS[slot * 2 + 1]);
+			UUID world = WORLDS[slot * 2] == 0 && WORLDS[slot * 2 + 1] == 0 ? null : new UUID(WORLDS[slot * 2], WORLDS[slot * 2 + 1]);
+			return new Trade(sequence, TIMES[slot], BROKERS[slot], SALES[slot], OBJECTS[slot], player, world, VOLUMES[slot], VALUES[slot]);
+		}
+
+		/**
+		 * Wait until this subscription has read far enough for the provided sequence to be written without overwriting an unread trade,
+		 * giving up on it for good if that takes longer than the limit
+		 */
+		private void await(long sequence) {
+			long deadline = System.nanoTime() + BLOCK_LIMIT;
+			while (!closed && sequence - next.get() >= CAPACITY) {
+				if (System.nanoTime() - deadline >= 0) {
+					overflowed = true;
+					return;
+				}
+				LockSupport.parkNanos(1000);
+			}
+		}
+
+		/**
+		 * Check if this blocking subscription kept publishing waiting too long, and has since been treated as dropping the trades it falls behind on
+		 * @return true if this subscription overflowed, false otherwise
+		 */
+		public boolean overflowed() {
+			return overflowed;
+		}
+
+		/**
+		 * Get the number of trades this subscription has skipped, by falling behind or by sampling
+		 * @return the number of trades skipped
+		 */
+		public long dropped() {
+			return dropped;
+		}
+
+		/**
+		 * Get the number of trades published but not yet read by this subscription
+		 * @return this subscription's backlog
+		 */
+		public long backlog() {
+			return Math.max(0, CURSOR.get() - next.get());
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			unsubscribe(this);
+		}
+	}
+
+	/**
+	 * A completed trade, as read from the feed
+	 */
+	public static final class Trade {
+
+		private final long sequence, time;
+		private final String brokerId;
+		private final boolean sale;
+		private final Object object;
+		private final Optional<UUID> playerID, worldID;
+		private final int volume;
+		private final double value;
+
+		private Trade(long sequence, long time, String brokerId, boolean sale, Object object, UUID playerID, UUID worldID, int volume, double value) {
+			this.sequence = sequence;
+			this.time = time;
+			this.brokerId = brokerId;
+			this.sale = sale;
+			this.object = object;
+			this.playerID = Optional.ofNullable(playerID);
+			this.worldID = Optional.ofNullable(worldID);
+			this.volume = volume;
+			this.value = value;
+		}
+
+		/**
+		 * Get the position of this trade in the feed, which increases by one with every trade published
+		 * @return the sequence number of this trade
+		 */
+		public long sequence() {
+			return sequence;
+		}
+
+		/**
+		 * Get when this trade was completed
+		 * @return the completion time, in milliseconds since the epoch
+		 */
+		public long time() {
+			return time;
+		}
+
+		public String brokerId() {
+			return brokerId;
+		}
+
+		public boolean isSale() {
+			return sale;
+		}
+
+		/**
+		 * Get the object traded, or its {@link ItemFingerprint} if it was an item
+		 * @return the object traded
+		 */
+		public Object object() {
+			return object;
+		}
+
+		public Optional<UUID> playerID() {
+			return playerID;
+		}
+
+		public Optional<UUID> worldID() {
+			return worldID;
+		}
+
+		public int volume() {
+			return volume;
+		}
+
+		public double value() {
+			return value;
+		}
+	}
+
+}
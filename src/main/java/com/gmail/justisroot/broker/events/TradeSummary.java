@@ -0,0 +1,86 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.events;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The totals of one player's trades of one object through one Broker, within a single tick.
+ */
+public final class TradeSummary {
+
+	private final Optional<UUID> playerID;
+	private final String brokerId;
+	private final Object object;
+	private final long purchasedVolume, soldVolume;
+	private final double purchasedValue, soldValue;
+
+	TradeSummary(Optional<UUID> playerID, String brokerId, Object object, long purchasedVolume, double purchasedValue, long soldVolume, double soldValue) {
+		this.playerID = playerID;
+		this.brokerId = brokerId;
+		this.object = object;
+		this.purchasedVolume = purchasedVolume;
+		this.purchasedValue = purchasedValue;
+		this.soldVolume = soldVolume;
+		this.soldValue = soldValue;
+	}
+
+	/**
+	 * Get the ID of the player who traded
+	 * @return the player's ID, or empty for trades made without a player
+	 */
+	public Optional<UUID> playerID() {
+		return playerID;
+	}
+
+	public String brokerId() {
+		return brokerId;
+	}
+
+	/**
+	 * Get the traded object, as it was passed in the first of these trades.<br>
+	 * Items are copies with an amount of 1, since the volumes hold how many were traded.
+	 * @return the traded object
+	 */
+	public Object object() {
+		return object;
+	}
+
+	public long purchasedVolume() {
+		return purchasedVolume;
+	}
+
+	public double purchasedValue() {
+		return purchasedValue;
+	}
+
+	public long soldVolume() {
+		return soldVolume;
+	}
+
+	public double soldValue() {
+		return soldValue;
+	}
+
+}
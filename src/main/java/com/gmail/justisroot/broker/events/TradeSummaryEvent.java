@@ -0,0 +1,77 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Fired once per tick with the totals of every trade completed during that tick, by player, Broker and object.<br>
+ * For listeners which only need totals, this replaces listening to every {@link PurchaseEvent} and {@link SaleEvent}.
+ * Trades are only summed while something listens to this event.
+ */
+public class TradeSummaryEvent extends Event {
+
+	private final List<TradeSummary> summaries;
+
+	public TradeSummaryEvent(List<TradeSummary> summaries) {
+		this.summaries = Collections.unmodifiableList(summaries);
+	}
+
+	/**
+	 * Get the totals of every player, Broker and object traded this tick
+	 * @return an unmodifiable list of this tick's trade totals
+	 */
+	public List<TradeSummary> getSummaries() {
+		return this.summaries;
+	}
+
+	/**
+	 * Get the totals of the provided player's trades this tick
+	 * @param playerID the ID of the player
+	 * @return the player's trade totals, empty if they made no trades this tick
+	 */
+	public List<TradeSummary> getSummaries(UUID playerID) {
+		List<TradeSummary> summaries = new ArrayList<>();
+		for (TradeSummary summary : this.summaries)
+			if (summary.playerID().isPresent() && summary.playerID().get().equals(playerID)) summaries.add(summary);
+		return summaries;
+	}
+
+	private static final HandlerList HANDLERS = new HandlerList();
+
+	@Override
+	public HandlerList getHandlers() {
+		return HANDLERS;
+	}
+
+	public static HandlerList getHandlerList() {
+		return HANDLERS;
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.events;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.permissions.Permission;
+
+import com.gmail.justisroot.broker.defaults.itemstack.ItemFingerprint;
+
+/**
+ * Sums the trades completed within a tick by player, Broker and object, in an open-addressed table probed by the player's ID bits,
+ * the Broker's ID and the object's key, so that recording a trade into an existing line allocates nothing.
+ */
+final class TradeTally {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private Line[] table = new Line[INITIAL_CAPACITY];
+	private int size;
+
+	synchronized void add(String brokerId, boolean sale, Object object, Optional<UUID> playerID, int volume, BigDecimal value) {
+		long most = playerID.isPresent() ? playerID.get().getMostSignificantBits() : 0, least = playerID.isPresent() ? playerID.get().getLeastSignificantBits() : 0;
+		Object key = key(object);
+		int hash = hash(most, least, brokerId, key);
+		int mask = table.length - 1, slot = hash & mask;
+		Line line;
+		while ((line = table[slot]) != null && !line.matches(hash, most, least, brokerId, key))
+			slot = (slot + 1) & mask;
+		if (line == null) {
+			line = table[slot] = new Line(hash, most, least, brokerId, key, snapshot(object));
+			if (++size * 2 > table.length) resize();
+		}
+		double amount = value.doubleValue();
+		if (sale) {
+			line.soldVolume += volume;
+			line.soldValue += amount;
+		} else {
+			line.purchasedVolume += volume;
+			line.purchasedValue += amount;
+		}
+	}
+
+	/**
+	 * Take every line summed since the last drain, leaving the tally empty
+	 */
+	synchronized List<TradeSummary> drain() {
+		if (size == 0) return Collections.emptyList();
+		List<TradeSummary> summaries = new ArrayList<>(size);
+		for (Line line : table)
+			if (line != null) summaries.add(line.summary());
+		Arrays.fill(table, null);
+		size = 0;
+		return summaries;
+	}
+
+	private void resize() {
+		Line[] old = table;
+		table = new Line[old.length * 2];
+		int mask = table.length - 1;
+		for (Line line : old) {
+			if (line == null) continue;
+			int slot = line.hash & mask;
+			while (table[slot] != null)
+				slot = (slot + 1) & mask;
+			table[slot] = line;
+		}
+	}
+
+	private static Object key(Object object) {
+		if (object instanceof ItemStack) return ItemFingerprint.of((ItemStack) object);
+		if (object instanceof Permission) return ((Permission) object).getName();
+		return object;
+	}
+
+	/**
+	 * Copy the provided object if it can be changed after it's traded, so that the summary shows what was traded rather than what the object became
+	 */
+	private static Object snapshot(Object object) {
+		if (!(object instanceof ItemStack)) return object;
+		ItemStack item = ((ItemStack) object).clone();
+		item.setAmount(1);
+		return item;
+	}
+
+	private static int hash(long most, long least, String brokerId, Object key) {
+		long bits = most * 0x9E3779B97F4A7C15L ^ least;
+		int hash = (int) (bits ^ (bits >>> 32));
+		hash = 31 * hash + brokerId.hashCode();
+		hash = 31 * hash + Objects.hashCode(key);
+		return hash ^ (hash >>> 16);
+	}
+
+	private static final class Line {
+
+		private final int hash;
+		private final long most, least;
+		private final String brokerId;
+		private final Object key, object;
+		private long purchasedVolume, soldVolume;
+		private double purchasedValue, soldValue;
+
+		private Line(int hash, long most, long least, String brokerId, Object key, Object object) {
+			this.hash = hash;
+			this.most = most;
+			this.least = least;
+			this.brokerId = brokerId;
+			this.key = key;
+			this.object = object;
+		}
+
+		private boolean matches(int hash, long most, long least, String brokerId, Object key) {
+			return this.hash == hash && this.most == most && this.least == least && this.brokerId.equals(brokerId) && Objects.equals(this.key, key);
+		}
+
+		private TradeSummary summary() {
+			Optional<UUID> playerID = most == 0 && least == 0 ? Optional.empty() : Optional.of(new UUID(most, least));
+			return new TradeSummary(playerID, brokerId, object, purchasedVolume, purchasedValue, soldVolume, soldValue);
+		}
+	}
+
+}
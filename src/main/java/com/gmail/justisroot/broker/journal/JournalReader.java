@@ -0,0 +1,104 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Streams records from a journal's segments in sequence order, without mapping them.<br>
+ * Reading stops at the end of what has been written so far, and {@link #hasNext()} may be polled again to follow trades as they're appended.
+ */
+public final class JournalReader implements Iterator<JournalRecord>, AutoCloseable {
+
+	private final File directory;
+	private final ByteBuffer record = ByteBuffer.allocate(TradeJournal.RECORD_SIZE);
+	private final CRC32 checksum = new CRC32();
+	private FileChannel channel;
+	private long base, sequence;
+	private JournalRecord next;
+
+	JournalReader(File directory, long from) throws IOException {
+		this.directory = directory;
+		long[] bases = TradeJournal.segments(directory);
+		this.sequence = bases.length == 0 ? from : Math.max(from, bases[0]);
+		open(bases);
+	}
+
+	/**
+	 * Open the segment holding the current sequence, if it exists
+	 */
+	private boolean open(long[] bases) throws IOException {
+		long base = -1;
+		for (long candidate : bases)
+			if (candidate <= sequence) base = candidate;
+		if (base < 0 || (channel != null && base == this.base)) return false;
+		close();
+		this.base = base;
+		channel = FileChannel.open(new File(directory, TradeJournal.name(base)).toPath(), StandardOpenOption.READ);
+		return true;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) return true;
+		try {
+			while (true) {
+				if (channel == null && !open(TradeJournal.segments(directory))) return false;
+				record.clear();
+				long position = (sequence - base) * TradeJournal.RECORD_SIZE;
+				while (record.hasRemaining() && channel.read(record, position + record.position()) > 0);
+				if (!record.hasRemaining() && TradeJournal.valid(record, sequence, checksum)) {
+					next = new JournalRecord(record);
+					sequence++;
+					return true;
+				}
+				// This segment ends here, so the next record is either in a newer segment or not yet written
+				if (!open(TradeJournal.segments(directory))) return false;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to read the trade journal", e);
+		}
+	}
+
+	@Override
+	public JournalRecord next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		JournalRecord record = next;
+		next = null;
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) channel.close();
+		channel = null;
+	}
+
+}
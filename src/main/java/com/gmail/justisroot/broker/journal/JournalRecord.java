@@ -0,0 +1,132 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.journal;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * A completed trade, as read back from the journal.<br>
+ * The traded object is recorded only by description, being its material for items, its name for permissions, or its string otherwise.<br>
+ * Anything too long for the record is truncated, and flagged as such.
+ */
+public final class JournalRecord {
+
+	private final long sequence, time;
+	private final boolean sale;
+	private final int volume, flags;
+	private final BigDecimal value;
+	private final Optional<UUID> playerID, worldID;
+	private final String brokerId, object;
+
+	JournalRecord(ByteBuffer record) {
+		this.sequence = record.getLong(TradeJournal.SEQUENCE);
+		this.time = record.getLong(TradeJournal.TIME);
+		this.volume = record.getInt(TradeJournal.VOLUME);
+		this.sale = record.get(TradeJournal.KIND) == TradeJournal.SALE;
+		this.flags = record.get(TradeJournal.FLAGS);
+		this.value = BigDecimal.valueOf(record.getLong(TradeJournal.VALUE), record.getShort(TradeJournal.SCALE));
+		this.playerID = uuid(record, TradeJournal.PLAYER);
+		this.worldID = uuid(record, TradeJournal.WORLD);
+		int brokerLength = record.get(TradeJournal.BROKER_LENGTH), objectLength = record.get(TradeJournal.OBJECT_LENGTH);
+		this.brokerId = new String(record.array(), TradeJournal.STRINGS, brokerLength, StandardCharsets.UTF_8);
+		this.object = new String(record.array(), TradeJournal.STRINGS + brokerLength, objectLength, StandardCharsets.UTF_8);
+	}
+
+	private static Optional<UUID> uuid(ByteBuffer record, int offset) {
+		long most = record.getLong(offset), least = record.getLong(offset + 8);
+		return most == 0 && least == 0 ? Optional.empty() : Optional.of(new UUID(most, least));
+	}
+
+	public long sequence() {
+		return sequence;
+	}
+
+	/**
+	 * Get when this trade was completed
+	 * @return the completion time, in milliseconds since the epoch
+	 */
+	public long time() {
+		return time;
+	}
+
+	public boolean isSale() {
+		return sale;
+	}
+
+	/**
+	 * Get the ID of the Broker which completed the trade
+	 * @return the Broker's ID, truncated if {@link #isBrokerIdTruncated()}
+	 */
+	public String brokerId() {
+		return brokerId;
+	}
+
+	public boolean isBrokerIdTruncated() {
+		return (flags & TradeJournal.BROKER_TRUNCATED) != 0;
+	}
+
+	/**
+	 * Get the description of the traded object
+	 * @return the traded object's description, truncated if {@link #isObjectTruncated()}
+	 */
+	public String object() {
+		return object;
+	}
+
+	public boolean isObjectTruncated() {
+		return (flags & TradeJournal.OBJECT_TRUNCATED) != 0;
+	}
+
+	public Optional<UUID> playerID() {
+		return playerID;
+	}
+
+	public Optional<UUID> worldID() {
+		return worldID;
+	}
+
+	public int volume() {
+		return volume;
+	}
+
+	/**
+	 * Get the value of the trade, exactly as completed unless {@link #isValueRounded()}
+	 * @return the trade's value
+	 */
+	public BigDecimal value() {
+		return value;
+	}
+
+	/**
+	 * Check if the value had more digits than a record holds, and was rounded to the 18 most significant
+	 * @return true if the value was rounded, false if it's exact
+	 */
+	public boolean isValueRounded() {
+		return (flags & TradeJournal.VALUE_ROUNDED) != 0;
+	}
+
+}
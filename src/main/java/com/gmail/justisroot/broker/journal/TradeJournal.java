@@ -0,0 +1,309 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.permissions.Permission;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.gmail.justisroot.broker.BrokerInfo;
+import com.gmail.justisroot.broker.BrokerSettings;
+
+/**
+ * An append-only journal of every completed trade, written to memory-mapped segment files of fixed-size records.<br>
+ * Appending only copies a record into the mapped segment, so it never waits on the disk. Segments are forced to disk on an asynchronous timer,
+ * and a record torn by a crash is found by its checksum and overwritten when the journal is next opened.
+ */
+public final class TradeJournal {
+
+	static final int RECORD_SIZE = 128;
+	static final String EXTENSION = ".journal";
+
+	// Record layout. The value is held exactly as its unscaled value and scale, and the broker ID and object description share the space left for strings.
+	static final int SEQUENCE = 0, TIME = 8, VOLUME = 16, KIND = 20, FLAGS = 21, SCALE = 22, VALUE = 24, PLAYER = 32, WORLD = 48;
+	static final int BROKER_LENGTH = 64, OBJECT_LENGTH = 65, STRINGS = 66, CHECKSUM = 124;
+	static final int STRING_BYTES = CHECKSUM - STRINGS;
+	static final byte PURCHASE = 1, SALE = 2;
+	// Flags marking what didn't fit the record as it was
+	static final byte BROKER_TRUNCATED = 1, OBJECT_TRUNCATED = 2, VALUE_ROUNDED = 4;
+
+	// The most digits an unscaled value can be rounded to and still fit a long
+	private static final MathContext UNSCALED = new MathContext(18, RoundingMode.HALF_EVEN);
+
+	private static volatile TradeJournal current;
+
+	private final File directory;
+	private final int segmentSize, maxSegments;
+	private final Logger logger;
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+	private final CRC32 checksum = new CRC32();
+	private MappedByteBuffer segment, previous;
+	private long base, next;
+	private BukkitTask syncer;
+
+	private TradeJournal(File directory, int segmentSize, int maxSegments, Logger logger) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		this.logger = logger;
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Unable to create " + directory);
+		long[] bases = segments(directory);
+		if (bases.length == 0) start(0);
+		else recover(bases[bases.length - 1]);
+	}
+
+	/**
+	 * Open the journal configured in Broker's settings, closing any journal already open
+	 * @param plugin Broker's plugin instance
+	 */
+	public static synchronized void open(JavaPlugin plugin) {
+		close();
+		ConfigurationSection settings = BrokerSettings.section("Journal");
+		if (!settings.getBoolean("enabled")) return;
+		try {
+			TradeJournal journal = new TradeJournal(new File(plugin.getDataFolder(), "journal"), Math.min(Math.max(1, settings.getInt("segment-size")), Integer.MAX_VALUE / RECORD_SIZE), settings.getInt("max-segments"), plugin.getLogger());
+			long interval = settings.getLong("sync-interval") * 20;
+			if (interval > 0) journal.syncer = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, journal::sync, interval, interval);
+			current = journal;
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.SEVERE, "Unable to open the trade journal", e);
+		}
+	}
+
+	/**
+	 * Close the open journal, if any, forcing everything appended to disk
+	 */
+	public static synchronized void close() {
+		TradeJournal journal = current;
+		if (journal == null) return;
+		current = null;
+		if (journal.syncer != null) journal.syncer.cancel();
+		journal.sync();
+	}
+
+	/**
+	 * Get the open journal
+	 * @return the open journal, or null if the journal is disabled
+	 */
+	public static TradeJournal current() {
+		return current;
+	}
+
+	/**
+	 * Read the journal in the provided directory, from the provided sequence onward
+	 * @param directory the directory of the journal's segments
+	 * @param from the sequence of the first trade to read, or 0 for the oldest kept
+	 * @return a reader of the journal, which should be closed once read
+	 * @throws IOException if the journal's segments can't be listed
+	 */
+	public static JournalReader read(File directory, long from) throws IOException {
+		return new JournalReader(directory, from);
+	}
+
+	/**
+	 * Get the directory this journal's segments are written to
+	 * @return the journal's directory
+	 */
+	public File directory() {
+		return directory;
+	}
+
+	/**
+	 * Get the sequence the next trade will be appended under
+	 * @return the next sequence
+	 */
+	public synchronized long next() {
+		return next;
+	}
+
+	/**
+	 * Append a completed trade to this journal
+	 */
+	public synchronized void append(BrokerInfo info, boolean sale, Object object, Optional<UUID> playerID, Optional<UUID> worldID, int volume, BigDecimal value) {
+		if (segment == null) return;
+		if (next - base == segment.capacity() / RECORD_SIZE) {
+			try {
+				start(next);
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "Unable to start a new trade journal segment, trades will no longer be journaled", e);
+				segment = null;
+				return;
+			}
+		}
+		ByteBuffer record = this.record;
+		Arrays.fill(record.array(), (byte) 0);
+		record.putLong(SEQUENCE, next);
+		record.putLong(TIME, System.currentTimeMillis());
+		record.putInt(VOLUME, volume);
+		record.put(KIND, sale ? SALE : PURCHASE);
+		int flags = 0;
+		if (value.unscaledValue().bitLength() > 63 || value.scale() > Short.MAX_VALUE) {
+			value = value.round(UNSCALED);
+			if (value.scale() > Short.MAX_VALUE) value = value.setScale(Short.MAX_VALUE, RoundingMode.HALF_EVEN);
+			flags |= VALUE_ROUNDED;
+		}
+		record.putShort(SCALE, (short) value.scale());
+		record.putLong(VALUE, value.unscaledValue().longValue());
+		putUUID(record, PLAYER, playerID);
+		putUUID(record, WORLD, worldID);
+		byte[] broker = info.id().getBytes(StandardCharsets.UTF_8), description = describe(object).getBytes(StandardCharsets.UTF_8);
+		// The broker ID may take whatever the description leaves, but never less than half
+		int brokerLength = putString(record, STRINGS, Math.max(STRING_BYTES / 2, STRING_BYTES - description.length), broker);
+		int objectLength = putString(record, STRINGS + brokerLength, STRING_BYTES - brokerLength, description);
+		if (brokerLength < broker.length) flags |= BROKER_TRUNCATED;
+		if (objectLength < description.length) flags |= OBJECT_TRUNCATED;
+		record.put(FLAGS, (byte) flags);
+		record.put(BROKER_LENGTH, (byte) brokerLength);
+		record.put(OBJECT_LENGTH, (byte) objectLength);
+		checksum.reset();
+		checksum.update(record.array(), 0, CHECKSUM);
+		record.putInt(CHECKSUM, (int) checksum.getValue());
+		segment.position((int) (next - base) * RECORD_SIZE);
+		segment.put(record.array());
+		next++;
+	}
+
+	/**
+	 * Force every appended record to disk
+	 */
+	private void sync() {
+		MappedByteBuffer segment, previous;
+		synchronized (this) {
+			segment = this.segment;
+			previous = this.previous;
+			this.previous = null;
+		}
+		if (previous != null) previous.force();
+		if (segment != null) segment.force();
+	}
+
+	/**
+	 * Map a new segment starting at the provided sequence, deleting the oldest segments beyond those kept
+	 */
+	private void start(long base) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(new File(directory, name(base)), "rw")) {
+			file.setLength((long) segmentSize * RECORD_SIZE);
+			MappedByteBuffer mapped = file.getChannel().map(MapMode.READ_WRITE, 0, file.length());
+			if (segment != null) previous = segment;
+			segment = mapped;
+		}
+		this.base = base;
+		this.next = base;
+		if (maxSegments <= 0) return;
+		long[] bases = segments(directory);
+		for (int i = 0; i < bases.length - maxSegments; i++)
+			new File(directory, name(bases[i])).delete();
+	}
+
+	/**
+	 * Map the last segment and find its end, the first record which wasn't completely written
+	 */
+	private void recover(long base) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(new File(directory, name(base)), "rw")) {
+			segment = file.getChannel().map(MapMode.READ_WRITE, 0, file.length() - file.length() % RECORD_SIZE);
+		}
+		this.base = base;
+		int records = segment.capacity() / RECORD_SIZE, index = 0;
+		byte[] bytes = new byte[RECORD_SIZE];
+		for (; index < records; index++) {
+			segment.position(index * RECORD_SIZE);
+			segment.get(bytes);
+			if (!valid(ByteBuffer.wrap(bytes), base + index, checksum)) break;
+		}
+		this.next = base + index;
+		if (index == records) {
+			start(next);
+			return;
+		}
+		// Clear whatever was torn, so that it can't be mistaken for a record later
+		segment.position(index * RECORD_SIZE);
+		segment.put(new byte[RECORD_SIZE]);
+	}
+
+	static boolean valid(ByteBuffer record, long sequence, CRC32 checksum) {
+		if (record.getLong(SEQUENCE) != sequence) return false;
+		checksum.reset();
+		checksum.update(record.array(), record.arrayOffset(), CHECKSUM);
+		return record.getInt(CHECKSUM) == (int) checksum.getValue();
+	}
+
+	static long[] segments(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (files == null) return new long[0];
+		return Arrays.stream(files).map(File::getName).filter(name -> name.substring(0, name.length() - EXTENSION.length()).chars().allMatch(Character::isDigit))
+				.mapToLong(name -> Long.parseLong(name.substring(0, name.length() - EXTENSION.length()))).sorted().toArray();
+	}
+
+	static String name(long base) {
+		return String.format("%020d", base) + EXTENSION;
+	}
+
+	private static void putUUID(ByteBuffer record, int offset, Optional<UUID> id) {
+		if (id.isEmpty()) return;
+		record.putLong(offset, id.get().getMostSignificantBits());
+		record.putLong(offset + 8, id.get().getLeastSignificantBits());
+	}
+
+	/**
+	 * Write as much of the provided UTF-8 string as fits whole characters within the provided number of bytes
+	 * @return the number of bytes written
+	 */
+	private static int putString(ByteBuffer record, int offset, int max, byte[] bytes) {
+		int length = Math.min(bytes.length, max);
+		// Don't split a multi-byte character
+		while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80)
+			length--;
+		record.position(offset);
+		record.put(bytes, 0, length);
+		record.position(0);
+		return length;
+	}
+
+	private static String describe(Object object) {
+		if (object instanceof ItemStack) return ((ItemStack) object).getType().name();
+		if (object instanceof Permission) return ((Permission) object).getName();
+		return String.valueOf(object);
+	}
+
+}
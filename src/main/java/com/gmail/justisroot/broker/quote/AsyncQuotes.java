@@ -0,0 +1,206 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.quote;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.bukkit.Bukkit;
+
+import com.gmail.justisroot.broker.Broker;
+import com.gmail.justisroot.broker.defaults.AbstractBroker;
+
+/**
+ * Quotes prices from any thread, completing with the quote once it's made.<br>
+ * Brokers which declare themselves {@link AbstractBroker#isThreadSafe() thread safe} are queried directly by workers,
+ * each on a virtual thread of its own where the runtime has them, and otherwise on a pool of platform threads.
+ * Every other Broker is queried on the main thread: immediately if that's where the quote is asked for,
+ * and otherwise in a batch with the other quotes queued since the last tick.
+ */
+public final class AsyncQuotes {
+
+	private AsyncQuotes() { }
+
+	// Time the main thread spends on queued quotes each tick, before leaving the rest for the next
+	private static final long TICK_BUDGET = TimeUnit.MILLISECONDS.toNanos(2);
+
+	private static final Queue<Query<?>> MAIN = new ConcurrentLinkedQueue<>();
+	private static volatile ExecutorService workers;
+
+	/**
+	 * Get the price of buying the provided amount of the object through the provided Broker
+	 * @return the future price, completed on a worker or the main thread
+	 */
+	public static <T> CompletableFuture<Optional<BigDecimal>> getBuyPrice(Broker<T> broker, Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		return query(broker, () -> broker.getBuyPrice(playerID, worldID, object, amount));
+	}
+
+	/**
+	 * Get the price of selling the provided amount of the object through the provided Broker
+	 * @return the future price, completed on a worker or the main thread
+	 */
+	public static <T> CompletableFuture<Optional<BigDecimal>> getSellPrice(Broker<T> broker, Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		return query(broker, () -> broker.getSellPrice(playerID, worldID, object, amount));
+	}
+
+	/**
+	 * Make any query of the provided Broker on a thread it's safe to query from
+	 * @param broker the Broker being queried
+	 * @param query the query, which should only call the provided Broker
+	 * @return the future result of the query
+	 */
+	public static <V> CompletableFuture<V> query(Broker<?> broker, Supplier<V> query) {
+		return submit(broker, query, true);
+	}
+
+	/**
+	 * Make any query of the provided Broker on a thread it's safe to query from, never inline.<br>
+	 * Queries of Brokers that aren't thread safe wait for the next tick even when asked for on the main thread,
+	 * so that the returned future exists, and can be given a timeout, before the query is made.
+	 * @param broker the Broker being queried
+	 * @param query the query, which should only call the provided Broker
+	 * @return the future result of the query
+	 */
+	public static <V> CompletableFuture<V> queue(Broker<?> broker, Supplier<V> query) {
+		return submit(broker, query, false);
+	}
+
+	private static <V> CompletableFuture<V> submit(Broker<?> broker, Supplier<V> query, boolean inline) {
+		Query<V> pending = new Query<>(query);
+		ExecutorService workers = AsyncQuotes.workers;
+		if (workers == null) {
+			pending.cancel();
+		} else if (isThreadSafe(broker)) {
+			try {
+				workers.execute(pending);
+			} catch (RejectedExecutionException e) {
+				pending.cancel();
+			}
+		} else if (inline && Bukkit.isPrimaryThread()) {
+			pending.run();
+		} else {
+			MAIN.add(pending);
+		}
+		return pending.future;
+	}
+
+	/**
+	 * Check whether the provided Broker may be queried off the main thread
+	 * @param broker the Broker to check
+	 * @return true if the Broker declares itself thread safe, false otherwise
+	 */
+	public static boolean isThreadSafe(Broker<?> broker) {
+		return broker instanceof AbstractBroker && ((AbstractBroker<?>) broker).isThreadSafe();
+	}
+
+	/**
+	 * Make the queries queued for the main thread, until they run out or this tick's budget is spent. Called every tick.
+	 */
+	public static void drain() {
+		long start = System.nanoTime();
+		Query<?> query;
+		while ((query = MAIN.poll()) != null) {
+			query.run();
+			if (System.nanoTime() - start > TICK_BUDGET) return;
+		}
+	}
+
+	/**
+	 * Start the workers
+	 */
+	public static void open() {
+		ExecutorService virtual = virtualThreads();
+		if (virtual != null) {
+			workers = virtual;
+			return;
+		}
+		AtomicInteger count = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+			Thread thread = new Thread(runnable, "Broker Quote Worker #" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Get an executor running each task on a new virtual thread, looked up reflectively so that older runtimes are still supported
+	 * @return the executor, or null if the runtime has no virtual threads
+	 */
+	private static ExecutorService virtualThreads() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stop the workers, cancelling every quote that hasn't been made
+	 */
+	public static void close() {
+		ExecutorService workers = AsyncQuotes.workers;
+		AsyncQuotes.workers = null;
+		if (workers != null) for (Runnable query : workers.shutdownNow())
+			((Query<?>) query).cancel();
+		Query<?> query;
+		while ((query = MAIN.poll()) != null)
+			query.cancel();
+	}
+
+	private static final class Query<V> implements Runnable {
+
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private final Supplier<V> query;
+
+		private Query(Supplier<V> query) {
+			this.query = query;
+		}
+
+		@Override
+		public void run() {
+			// Skip quotes the caller has stopped waiting for
+			if (future.isDone()) return;
+			try {
+				future.complete(query.get());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}
+
+		private void cancel() {
+			future.completeExceptionally(new CancellationException("Broker is disabled"));
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.quote;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gmail.justisroot.broker.Broker;
+import com.gmail.justisroot.broker.BrokerAPI;
+import com.gmail.justisroot.broker.PrioritizedBroker;
+import com.gmail.justisroot.broker.SimilarBrokers;
+
+/**
+ * The best price offered for an object across every Broker registered for its type, rather than by the Broker of highest priority.<br>
+ * Every Broker that handles the trade is asked for its price at once through {@link AsyncQuotes}, and has until the request's deadline to answer.
+ * Brokers that miss the deadline are left out of the result and counted, so one slow shop can't hold up the answer.<br>
+ * Brokers that aren't thread safe are always queried in the next tick's batch, even when asked for on the main thread,
+ * so the main thread must never wait on the result; chain onto the returned future instead.
+ */
+public final class BestPrice<T> {
+
+	private static final Map<String, LongAdder> MISSED = new ConcurrentHashMap<>();
+
+	// Stand-ins for a Broker that answered with no price, and one that didn't answer in time
+	private static final Quote NONE = new Quote(null, null), LATE = new Quote(null, null);
+
+	private final List<Quote> quotes;
+	private final int missed;
+
+	private BestPrice(List<Quote> quotes, int missed) {
+		this.quotes = Collections.unmodifiableList(quotes);
+		this.missed = missed;
+	}
+
+	/**
+	 * Find the highest price any Broker would pay for the provided amount of the object
+	 * @param deadline how long each Broker has to answer
+	 * @param unit the unit of the deadline
+	 * @return the future best price, completed once every Broker has answered or the deadline has passed
+	 */
+	public static <T> CompletableFuture<BestPrice<T>> sale(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount, long deadline, TimeUnit unit) {
+		return find(true, playerID, worldID, object, amount, deadline, unit);
+	}
+
+	/**
+	 * Find the lowest price any Broker would charge for the provided amount of the object
+	 * @param deadline how long each Broker has to answer
+	 * @param unit the unit of the deadline
+	 * @return the future best price, completed once every Broker has answered or the deadline has passed
+	 */
+	public static <T> CompletableFuture<BestPrice<T>> purchase(Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount, long deadline, TimeUnit unit) {
+		return find(false, playerID, worldID, object, amount, deadline, unit);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> CompletableFuture<BestPrice<T>> find(boolean sale, Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount, long deadline, TimeUnit unit) {
+		List<Broker<T>> brokers = new ArrayList<>();
+		for (Entry<Class<?>, SimilarBrokers<?>> entry : BrokerAPI.current().brokerMap().entrySet()) {
+			if (!entry.getKey().isInstance(object)) continue;
+			Iterator<?> iterator = entry.getValue().iterator();
+			while (iterator.hasNext()) brokers.add((Broker<T>) ((PrioritizedBroker<?, ?>) iterator.next()).get());
+		}
+		List<CompletableFuture<Quote>> answers = new ArrayList<>(brokers.size());
+		for (Broker<T> broker : brokers)
+			answers.add(AsyncQuotes.queue(broker, () -> quote(broker, sale, playerID, worldID, object, amount)).completeOnTimeout(LATE, deadline, unit).exceptionally(t -> NONE));
+		return CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			List<Quote> quotes = new ArrayList<>();
+			int missed = 0;
+			for (int i = 0; i < answers.size(); i++) {
+				Quote quote = answers.get(i).join();
+				if (quote == LATE) {
+					missed++;
+					MISSED.computeIfAbsent(brokers.get(i).getId(), id -> new LongAdder()).increment();
+				} else if (quote != NONE) quotes.add(quote);
+			}
+			Comparator<Quote> cheapest = Comparator.comparing(Quote::price);
+			quotes.sort(sale ? cheapest.reversed() : cheapest);
+			return new BestPrice<>(quotes, missed);
+		});
+	}
+
+	private static <T> Quote quote(Broker<T> broker, boolean sale, Optional<UUID> playerID, Optional<UUID> worldID, T object, int amount) {
+		Optional<BigDecimal> price;
+		if (sale) price = broker.handlesSales(playerID, worldID, object) && broker.canBeSold(playerID, worldID, object) ? broker.getSellPrice(playerID, worldID, object, amount) : Optional.empty();
+		else price = broker.handlesPurchases(playerID, worldID, object) && broker.canBeBought(playerID, worldID, object) ? broker.getBuyPrice(playerID, worldID, object, amount) : Optional.empty();
+		return price.isPresent() ? new Quote(broker, price.get()) : NONE;
+	}
+
+	/**
+	 * @return the best quote, or empty if no Broker offered a price in time
+	 */
+	public Optional<Quote> winner() {
+		return quotes.isEmpty() ? Optional.empty() : Optional.of(quotes.get(0));
+	}
+
+	/**
+	 * @return every other quote offered in time, from best to worst
+	 */
+	public List<Quote> runnersUp() {
+		return quotes.isEmpty() ? quotes : quotes.subList(1, quotes.size());
+	}
+
+	/**
+	 * @return the number of Brokers which didn't answer before the deadline
+	 */
+	public int missed() {
+		return missed;
+	}
+
+	/**
+	 * Get the number of best price requests each Broker has missed the deadline of since enabling
+	 * @return the counts of missed deadlines, by Broker ID
+	 */
+	public static Map<String, Long> missedDeadlines() {
+		Map<String, Long> missed = new LinkedHashMap<>();
+		for (Entry<String, LongAdder> entry : MISSED.entrySet())
+			missed.put(entry.getKey(), entry.getValue().sum());
+		return missed;
+	}
+
+	/**
+	 * A price offered by one Broker
+	 */
+	public static final class Quote {
+
+		private final Broker<?> broker;
+		private final BigDecimal price;
+
+		private Quote(Broker<?> broker, BigDecimal price) {
+			this.broker = broker;
+			this.price = price;
+		}
+
+		public Broker<?> broker() {
+			return broker;
+		}
+
+		public BigDecimal price() {
+			return price;
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.stats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.Bukkit;
+
+/**
+ * The latencies of every call to one Broker's methods, kept since Broker enabled.
+ */
+public final class BrokerTimings {
+
+	/**
+	 * The timed methods of a Broker
+	 */
+	public enum Method {
+		HANDLES_PURCHASES("handlesPurchases"), HANDLES_SALES("handlesSales"), CAN_BE_BOUGHT("canBeBought"), CAN_BE_SOLD("canBeSold"),
+		GET_BUY_PRICE("getBuyPrice"), GET_SELL_PRICE("getSellPrice"), GET_BUY_PRICE_UNITS("getBuyPriceUnits"), GET_SELL_PRICE_UNITS("getSellPriceUnits"), BUY("buy"), SELL("sell"), COMPLETION("completion");
+
+		private final String display;
+
+		private Method(String display) {
+			this.display = display;
+		}
+
+		@Override
+		public String toString() {
+			return display;
+		}
+	}
+
+	private static final Map<String, BrokerTimings> TIMINGS = new ConcurrentHashMap<>();
+
+	private final String provider, id;
+	private final LatencyHistogram[] histograms = new LatencyHistogram[Method.values().length];
+	private final LongAdder mainThread = new LongAdder();
+	private final long since = System.nanoTime();
+
+	private BrokerTimings(String provider, String id) {
+		this.provider = provider;
+		this.id = id;
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new LatencyHistogram();
+	}
+
+	/**
+	 * Get the timings of the Broker with the provided ID, kept across reloads
+	 * @param provider the Broker's provider
+	 * @param id the Broker's ID
+	 * @return the Broker's timings
+	 */
+	public static BrokerTimings of(String provider, String id) {
+		return TIMINGS.computeIfAbsent(id, key -> new BrokerTimings(provider, id));
+	}
+
+	/**
+	 * Get the timings of every Broker which has been timed
+	 * @return the timings of every timed Broker
+	 */
+	public static Collection<BrokerTimings> all() {
+		return new ArrayList<>(TIMINGS.values());
+	}
+
+	/**
+	 * Record a call to the provided method
+	 * @param method the method called
+	 * @param start the {@link System#nanoTime()} at which the call started
+	 */
+	public void record(Method method, long start) {
+		long elapsed = System.nanoTime() - start;
+		histograms[method.ordinal()].record(elapsed);
+		if (Bukkit.isPrimaryThread()) mainThread.add(elapsed);
+	}
+
+	public String provider() {
+		return provider;
+	}
+
+	public String id() {
+		return id;
+	}
+
+	public LatencyHistogram histogram(Method method) {
+		return histograms[method.ordinal()];
+	}
+
+	/**
+	 * Get the share of the main thread's time spent in this Broker since timing began
+	 * @return the fraction of main thread time, between 0 and 1
+	 */
+	public double tickShare() {
+		long elapsed = System.nanoTime() - since;
+		return elapsed <= 0 ? 0 : (double) mainThread.sum() / elapsed;
+	}
+
+}
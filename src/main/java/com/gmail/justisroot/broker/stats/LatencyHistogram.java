@@ -0,0 +1,99 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of nanosecond latencies, in log-linear buckets which each span an eighth of a power of two.<br>
+ * Recording is a bucket index computation and a few atomic increments, and any percentile is reported within 12.5% of its true value.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BITS = 3, SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder(), total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a latency
+	 * @param nanos the latency, in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		buckets.incrementAndGet(index(nanos));
+		count.increment();
+		total.add(nanos);
+		if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * Get the sum of every recorded latency
+	 * @return the total recorded time, in nanoseconds
+	 */
+	public long total() {
+		return total.sum();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Get the latency which the provided fraction of recordings didn't exceed
+	 * @param percentile the fraction of recordings, between 0 and 1
+	 * @return the upper bound of the bucket holding that percentile, in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long percentile(double percentile) {
+		long count = count();
+		if (count == 0) return 0;
+		long target = Math.max(1, (long) Math.ceil(percentile * count)), seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= target) return Math.min(upper(i), max());
+		}
+		return max();
+	}
+
+	private static int index(long nanos) {
+		if (nanos < SUB_BUCKETS) return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upper(int index) {
+		if (index < SUB_BUCKETS) return index;
+		int exponent = index / SUB_BUCKETS + SUB_BITS - 1, sub = index % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the conversions between the prices Brokers answer with and the minor units of {@link AbstractBroker#getBuyPriceUnits} and {@link AbstractBroker#getSellPriceUnits}.
+ */
+class AbstractBrokerTest {
+
+	@Test
+	void roundsToMinorUnitsHalfUp() {
+		assertEquals(125, AbstractBroker.units(1.25));
+		assertEquals(13, AbstractBroker.units(0.125));
+		assertEquals(12, AbstractBroker.units(0.124));
+		assertEquals(0, AbstractBroker.units(0));
+		assertEquals(100_000_000_00L, AbstractBroker.units(100_000_000));
+	}
+
+	@Test
+	void hasNoUnitsForMissingOrUnrepresentablePrices() {
+		assertEquals(AbstractBroker.NO_PRICE, AbstractBroker.units(Double.NaN));
+		assertEquals(AbstractBroker.NO_PRICE, AbstractBroker.units(Double.POSITIVE_INFINITY));
+		assertEquals(AbstractBroker.NO_PRICE, AbstractBroker.units(Double.NEGATIVE_INFINITY));
+		assertEquals(AbstractBroker.NO_PRICE, AbstractBroker.units(1e30));
+	}
+
+	@Test
+	void convertsUnitsBackExactly() {
+		assertEquals(Optional.of(new BigDecimal("1.25")), AbstractBroker.price(125));
+		assertEquals(Optional.of(new BigDecimal("0.00")), AbstractBroker.price(0));
+		assertFalse(AbstractBroker.price(AbstractBroker.NO_PRICE).isPresent());
+	}
+
+	@Test
+	void convertsValuesToDecimals() {
+		assertEquals(Optional.of(new BigDecimal("2.5")), AbstractBroker.decimal(2.5));
+		assertFalse(AbstractBroker.decimal(Double.NaN).isPresent());
+		assertFalse(AbstractBroker.decimal(Double.POSITIVE_INFINITY).isPresent());
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * BrokerAPI Copyright 2020 Justis Root
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.gmail.justisroot.broker.defaults.itemstack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link DynamicShopPricing#total} against DynamicShop's own pricing, which steps through every unit, once both are rounded to the cent as the Broker rounds them.
+ */
+class DynamicShopPricingTest {
+
+	private static final double[] VALUES = { 0.5, 1, 7.25, 100 };
+	private static final double[] MINS = { 0, 0.5, 50 };
+	private static final double[] MAXES = { 0, 20, 1000 };
+	private static final double[] MEDIANS = { 0, 64, 10000 };
+	private static final long[] STOCKS = { 0, 1, 2, 100, 5000, 100000 };
+	private static final int[] AMOUNTS = { 1, 2, 17, 255, 256, 257, 1000, 2304, 10000 };
+
+	@Test
+	void matchesSteppedPricing() {
+		for (double value : VALUES)
+			for (double min : MINS)
+				for (double max : MAXES)
+					for (double median : MEDIANS)
+						for (long stock : STOCKS)
+							for (int amount : AMOUNTS)
+								for (boolean sell : new boolean[] { false, true }) {
+									double expected = round(stepped(value, min, max, median, stock, amount, sell));
+									double actual = round(DynamicShopPricing.total(value, min, max, median, stock, amount, sell));
+									// Closed form harmonic sums may round a hair differently, but never by more than a cent
+									assertEquals(expected, actual, 0.01 + Math.abs(expected) * 1e-12, () -> String.format("value %s, min %s, max %s, median %s, stock %s, amount %s, %s",
+											value, min, max, median, stock, amount, sell ? "sell" : "buy"));
+								}
+	}
+
+	@Test
+	void repeatsAdditionExactly() {
+		for (double price : new double[] { 0, 0.1, 3, 1e6 })
+			for (double unit : new double[] { 0.01, 0.1, 1.25, 33.3 })
+				for (long units : new long[] { 0, 1, 4, 100, 100000 }) {
+					double expected = price;
+					for (long i = 0; i < units; i++)
+						expected += unit;
+					assertEquals(expected, DynamicShopPricing.repeat(price, unit, units), 0);
+				}
+	}
+
+	/**
+	 * DynamicShop's pricing, one unit at a time
+	 */
+	private static double stepped(double value, double min, double max, double median, double stock, int amount, boolean sell) {
+		double price = 0;
+		for (int i = 0; i < amount; i++) {
+			if (max != 0 && price > max) {
+				price += max;
+			} else if (min != 0 && price < min) {
+				price += min;
+			} else if (median > 0 && stock > 1) {
+				price += median / stock * value;
+			} else {
+				price += value;
+			}
+			if (sell) stock++;
+			else stock--;
+		}
+		return price;
+	}
+
+	private static double round(double price) {
+		return Math.round(price * 100D) / 100D;
+	}
+
+}